@@ -7,6 +7,10 @@ public class AdminAuth {
     private static final String PASSWORD = "admin123";
     private static final int MAX_ATTEMPTS = 3;
 
+    public static boolean authenticate(String username, String password) {
+        return USERNAME.equals(username) && PASSWORD.equals(password);
+    }
+
     public static boolean login() {
         Scanner scanner = new Scanner(System.in);
         System.out.println("\n--- Admin Login ---");
@@ -20,7 +24,7 @@ public class AdminAuth {
                 System.out.print("Password: ");
                 String password = scanner.nextLine().trim();
                 
-                if (username.equals(USERNAME) && password.equals(PASSWORD)) {
+                if (authenticate(username, password)) {
                     System.out.println("Authentication successful!");
                     return true;
                 }
@@ -1,13 +1,15 @@
 package auth;
 
 import model.User;
-import util.FileHelper;
+import service.AuthService;
+import service.RegistrationRequest;
 import java.util.*;
 import java.util.regex.Pattern;
 
+// Console prompts for registration and login; AuthService does the work
 public class AuthManager {
     private final Scanner scanner = new Scanner(System.in);
-    private final String userFile = "data/users.txt";
+    private final AuthService authService = AuthService.getInstance();
     private static final Pattern EMAIL_PATTERN = 
         Pattern.compile("^[A-Za-z0-9+_.-]+@(.+)$");
     private static final Pattern PHONE_PATTERN = 
@@ -108,8 +110,12 @@ public class AuthManager {
                 break;
             }
 
-            String userData = String.join(",", name, String.valueOf(age), gender, email, phone, password);
-            FileHelper.appendToFile(userFile, userData);
+            try {
+                authService.register(new RegistrationRequest(name, age, gender, email, phone, password));
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());
+                return;
+            }
             System.out.println("Registration successful!");
 
         } catch (Exception e) {
@@ -125,29 +131,11 @@ public class AuthManager {
             System.out.print("Password: ");
             String password = scanner.nextLine().trim();
 
-            List<String> lines = FileHelper.readFile(userFile);
-            for (String line : lines) {
-                try {
-                    String[] data = line.split(",");
-                    if (data.length >= 6) {
-                        String storedEmail = data[3].trim();
-                        String storedPassword = data[5].trim();
-                        
-                        if (storedEmail.equalsIgnoreCase(email)) {
-                            if (storedPassword.equals(password)) {
-                                return new User(data[0], Integer.parseInt(data[1]), data[2], data[3], data[4]);
-                            } else {
-                                System.out.println("Incorrect password!");
-                                return null;
-                            }
-                        }
-                    }
-                } catch (Exception e) {
-                    System.out.println("Error processing user data. Skipping corrupted entry.");
-                    continue;
-                }
+            try {
+                return authService.login(email, password);
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());
             }
-            System.out.println("No account found with that email!");
         } catch (Exception e) {
             System.out.println("An error occurred during login: " + e.getMessage());
         }
@@ -159,13 +147,6 @@ public class AuthManager {
     }
 
     private boolean isEmailExists(String email) {
-        List<String> lines = FileHelper.readFile(userFile);
-        for (String line : lines) {
-            String[] data = line.split(",");
-            if (data.length >= 4 && data[3].trim().equalsIgnoreCase(email)) {
-                return true;
-            }
-        }
-        return false;
+        return authService.isEmailRegistered(email);
     }
 }
\ No newline at end of file
@@ -0,0 +1,83 @@
+package auth;
+
+import util.BloomFilter;
+import util.FileHelper;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index of data/users.txt keyed by lower-cased email.
+ * The file is read once; registrations update the index as they are written.
+ * A Bloom filter in front of the map answers most "is this email new?"
+ * checks without touching the map at all.
+ */
+public class UserStore {
+    private static final String USER_FILE = "data/users.txt";
+    private static UserStore instance;
+
+    // Record layout: name,age,gender,email,phone,password
+    private final Map<String, String[]> usersByEmail = new ConcurrentHashMap<>();
+    private volatile BloomFilter knownEmails;
+    private int capacity;
+
+    private UserStore() {
+        FileHelper.lines(USER_FILE).forEach(line -> {
+            String[] data = line.split(",");
+            if (data.length >= 6) {
+                usersByEmail.putIfAbsent(normalize(data[3]), data);
+            }
+        });
+        rebuildFilter();
+    }
+
+    public static synchronized UserStore getInstance() {
+        if (instance == null) {
+            instance = new UserStore();
+        }
+        return instance;
+    }
+
+    public boolean exists(String email) {
+        String key = normalize(email);
+        return knownEmails.mightContain(key) && usersByEmail.containsKey(key);
+    }
+
+    // Returns the stored record fields, or null if the email is not registered
+    public String[] find(String email) {
+        String key = normalize(email);
+        return knownEmails.mightContain(key) ? usersByEmail.get(key) : null;
+    }
+
+    /**
+     * Persists and indexes a new user record. Returns false if the email was
+     * registered in the meantime.
+     */
+    public synchronized boolean add(String[] record) {
+        String key = normalize(record[3]);
+        if (usersByEmail.containsKey(key)) {
+            return false;
+        }
+        FileHelper.appendToFile(USER_FILE, String.join(",", record));
+        usersByEmail.put(key, record);
+        knownEmails.add(key);
+        // Keep the false positive rate in check as the user base grows
+        if (usersByEmail.size() > capacity) {
+            rebuildFilter();
+        }
+        return true;
+    }
+
+    private void rebuildFilter() {
+        capacity = Math.max(usersByEmail.size() * 2, 1024);
+        BloomFilter filter = new BloomFilter(capacity);
+        for (String email : usersByEmail.keySet()) {
+            filter.add(email);
+        }
+        knownEmails = filter;
+    }
+
+    private static String normalize(String email) {
+        return email == null ? "" : email.trim().toLowerCase();
+    }
+}
@@ -0,0 +1,113 @@
+// AdminActivityLog.java
+package dao;
+
+import events.RailwayEvent;
+import events.TrainChanged;
+import model.Train;
+import util.RotatingLog;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * The admin activity log file and its line format, shared by the listener
+ * that writes it and AdminLogQuery, which reads it back. Lines look like
+ * "[yyyy-MM-dd HH:mm:ss] ADMIN: Added Train TRAIN001 - ..."; every line is
+ * indexed under the key "EVENT/TRAINID".
+ */
+public class AdminActivityLog {
+    public static final String LOG_FILE = "logs/admin_activity.log";
+    private static final long MAX_SEGMENT_BYTES = 4L * 1024 * 1024;
+    private static final String ACTION_PREFIX = "] ADMIN: ";
+    private static final RotatingLog LOG = new RotatingLog(LOG_FILE, MAX_SEGMENT_BYTES, 4096, AdminActivityLog::indexKey);
+
+    private AdminActivityLog() {
+    }
+
+    /**
+     * Formats and queues the line for a train change, stamped with the time of
+     * the change. Returns the line, or null for events that are not logged.
+     */
+    public static String append(RailwayEvent event, TrainChanged change) {
+        LocalDateTime at = change.at().withNano(0);
+        StringBuilder sb = new StringBuilder(128)
+                .append('[').append(RotatingLog.TIMESTAMP_FORMAT.format(at)).append(ACTION_PREFIX);
+
+        switch (event) {
+            case TRAIN_ADDED: {
+                Train train = change.train();
+                sb.append("Added Train ").append(change.trainId()).append(" - ").append(train.getName())
+                        .append(" (").append(train.getSource()).append(" to ").append(train.getDestination()).append(')');
+                break;
+            }
+            case TRAIN_MODIFIED: {
+                Train train = change.train();
+                sb.append("Modified Train ").append(change.trainId()).append(" - ").append(train.getName())
+                        .append(" (New Seats: ").append(train.getSeats()).append(", New Fare: ");
+                appendAmount(sb, train.getFare()).append(')');
+                break;
+            }
+            case TRAIN_DELETED:
+                sb.append("Deleted Train ").append(change.trainId());
+                break;
+            default:
+                return null;
+        }
+
+        String line = sb.toString();
+        LOG.append(at, line);
+        return line;
+    }
+
+    // Waits until every queued entry has been written; false if any could not be
+    public static boolean flush() {
+        return LOG.flush();
+    }
+
+    // Held while reading the log files so a rotation cannot happen mid-read
+    public static Lock readLock() {
+        return LOG.readLock();
+    }
+
+    // Event type of a log line, or null
+    public static RailwayEvent eventOf(String line) {
+        int action = line.indexOf(ACTION_PREFIX);
+        if (action < 0) return null;
+        action += ACTION_PREFIX.length();
+        if (line.startsWith("Added Train ", action)) return RailwayEvent.TRAIN_ADDED;
+        if (line.startsWith("Modified Train ", action)) return RailwayEvent.TRAIN_MODIFIED;
+        if (line.startsWith("Deleted Train ", action)) return RailwayEvent.TRAIN_DELETED;
+        return null;
+    }
+
+    // Train ID of a log line, or null
+    public static String trainIdOf(String line) {
+        int action = line.indexOf(ACTION_PREFIX);
+        if (action < 0) return null;
+        int start = line.indexOf("Train ", action);
+        if (start < 0) return null;
+        start += "Train ".length();
+        int end = line.indexOf(' ', start);
+        return end < 0 ? line.substring(start) : line.substring(start, end);
+    }
+
+    // Text after "ADMIN: ", or the whole line if it has none
+    public static String messageOf(String line) {
+        int action = line.indexOf(ACTION_PREFIX);
+        return action < 0 ? line : line.substring(action + ACTION_PREFIX.length());
+    }
+
+    // Index key "EVENT/TRAINID", so the query can skip blocks without that pair
+    static String indexKey(String line) {
+        RailwayEvent event = eventOf(line);
+        String trainId = trainIdOf(line);
+        return event == null || trainId == null ? null : event.name() + "/" + trainId;
+    }
+
+    // Same output as %.2f, which also rounds the shortest decimal form half up
+    private static StringBuilder appendAmount(StringBuilder sb, double amount) {
+        return sb.append(BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP).toPlainString());
+    }
+}
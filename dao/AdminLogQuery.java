@@ -0,0 +1,305 @@
+// AdminLogQuery.java
+package dao;
+
+import events.RailwayEvent;
+import util.FileHelper;
+import util.RotatingLog;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Searches the admin activity log by time range, event type and train ID.
+ *
+ * Segments whose index summary lies outside the time range are skipped
+ * without being opened. Within a segment, the sparse index narrows the
+ * search to blocks that overlap the range and, for closed segments, whose
+ * EVENT/TRAINID keys can satisfy the filters. Only those byte ranges are
+ * memory-mapped: closed segments are inflated from the gzip member that
+ * starts each run of blocks, the active segment is decoded in place. Indexes
+ * of closed segments never change, so each is read once and cached. The
+ * log's read lock is held for the whole scan so a rotation cannot show the
+ * same lines twice or not at all.
+ */
+public class AdminLogQuery {
+    private static AdminLogQuery instance;
+
+    public record Entry(LocalDateTime timestamp, RailwayEvent event, String trainId, String message) {
+    }
+
+    // Parsed .idx file: segment bounds plus a timestamp, offset and optional key set per block
+    private static final class SegmentIndex {
+        private final long first;
+        private final long last;
+        private final long[] times;
+        private final long[] offsets;
+        private final List<Set<String>> keys;
+
+        SegmentIndex(long first, long last, long[] times, long[] offsets, List<Set<String>> keys) {
+            this.first = first;
+            this.last = last;
+            this.times = times;
+            this.offsets = offsets;
+            this.keys = keys;
+        }
+
+        int blocks() {
+            return times.length;
+        }
+
+        // A block may hold lines in [times[i], times[i + 1]]
+        boolean overlaps(int block, long from, long to) {
+            long next = block + 1 < times.length ? times[block + 1] : Long.MAX_VALUE;
+            return times[block] <= to && next >= from;
+        }
+
+        long end(int block, long length) {
+            return block + 1 < offsets.length ? offsets[block + 1] : length;
+        }
+    }
+
+    private final File activeFile = new File(AdminActivityLog.LOG_FILE);
+    private final Map<String, SegmentIndex> closedIndexes = new ConcurrentHashMap<>();
+
+    private AdminLogQuery() {
+    }
+
+    public static synchronized AdminLogQuery getInstance() {
+        if (instance == null) {
+            instance = new AdminLogQuery();
+        }
+        return instance;
+    }
+
+    /**
+     * Entries between from and to (inclusive), oldest first. Null bounds are
+     * open, null or empty events means every train event, null trainId means
+     * every train.
+     */
+    public List<Entry> find(LocalDateTime from, LocalDateTime to, EnumSet<RailwayEvent> events, String trainId) {
+        AdminActivityLog.flush();
+        // Blocks are picked with slack for lines logged slightly out of time order; lines are checked exactly
+        long fromSecond = from == null ? Long.MIN_VALUE : toEpochSecond(from) - RotatingLog.MAX_DISORDER_SECONDS;
+        long toSecond = to == null ? Long.MAX_VALUE : toEpochSecond(to) + RotatingLog.MAX_DISORDER_SECONDS;
+        Filter filter = new Filter(from, to,
+                events == null || events.isEmpty() ? EnumSet.of(RailwayEvent.TRAIN_ADDED,
+                        RailwayEvent.TRAIN_MODIFIED, RailwayEvent.TRAIN_DELETED) : EnumSet.copyOf(events),
+                trainId == null || trainId.isEmpty() ? null : trainId.toUpperCase());
+
+        List<Entry> results = new ArrayList<>();
+        Lock lock = AdminActivityLog.readLock();
+        lock.lock();
+        try {
+            scanAll(fromSecond, toSecond, filter, results);
+        } finally {
+            lock.unlock();
+        }
+        return results;
+    }
+
+    private void scanAll(long fromSecond, long toSecond, Filter filter, List<Entry> results) {
+        for (File segment : RotatingLog.closedSegments(activeFile)) {
+            try {
+                SegmentIndex index = closedIndex(segment);
+                if (index.last < fromSecond || index.first > toSecond) continue;
+                scanSegment(segment, index, true, fromSecond, toSecond, filter, results);
+            } catch (FileNotFoundException | NoSuchFileException e) {
+                // Removed since listing, or its index is not written yet
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Error reading log segment " + segment.getName() + ": " + e.getMessage());
+            }
+        }
+        try {
+            File indexFile = RotatingLog.indexOf(activeFile);
+            SegmentIndex index = indexFile.exists() ? parseIndex(indexFile)
+                    : new SegmentIndex(0, 0, new long[] { Long.MIN_VALUE }, new long[] { 0 }, Collections.singletonList(null));
+            scanSegment(activeFile, index, false, fromSecond, toSecond, filter, results);
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            // Nothing logged since the last rotation
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error reading " + activeFile + ": " + e.getMessage());
+        }
+    }
+
+    // Maps and scans each run of consecutive blocks that can match
+    private void scanSegment(File file, SegmentIndex index, boolean compressed, long fromSecond, long toSecond,
+                             Filter filter, List<Entry> results) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long length = channel.size();
+            int block = 0;
+            while (block < index.blocks()) {
+                if (!index.overlaps(block, fromSecond, toSecond) || !filter.mayMatch(index.keys.get(block))) {
+                    block++;
+                    continue;
+                }
+                int runEnd = block;
+                while (runEnd + 1 < index.blocks() && index.overlaps(runEnd + 1, fromSecond, toSecond)
+                        && filter.mayMatch(index.keys.get(runEnd + 1))) {
+                    runEnd++;
+                }
+                long start = index.offsets[block];
+                long end = Math.min(index.end(runEnd, length), length);
+                if (end > start) {
+                    MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                    if (compressed) {
+                        scanCompressed(mapped, filter, results);
+                    } else {
+                        scanPlain(mapped, filter, results);
+                    }
+                }
+                block = runEnd + 1;
+            }
+        }
+    }
+
+    private void scanCompressed(ByteBuffer mapped, Filter filter, List<Entry> results) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new BufferInputStream(mapped), 16384), FileHelper.CHARSET))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                filter.accept(line, results);
+            }
+        }
+    }
+
+    // Lines still being written have no newline yet and are left out
+    private void scanPlain(ByteBuffer mapped, Filter filter, List<Entry> results) {
+        int lineStart = 0;
+        for (int i = 0; i < mapped.limit(); i++) {
+            if (mapped.get(i) != '\n') continue;
+            int lineEnd = i > lineStart && mapped.get(i - 1) == '\r' ? i - 1 : i;
+            byte[] bytes = new byte[lineEnd - lineStart];
+            mapped.get(lineStart, bytes);
+            lineStart = i + 1;
+            filter.accept(new String(bytes, FileHelper.CHARSET), results);
+        }
+    }
+
+    private SegmentIndex closedIndex(File segment) throws IOException {
+        SegmentIndex cached = closedIndexes.get(segment.getName());
+        if (cached != null) return cached;
+        SegmentIndex index = parseIndex(RotatingLog.indexOf(segment));
+        closedIndexes.put(segment.getName(), index);
+        return index;
+    }
+
+    private static SegmentIndex parseIndex(File file) throws IOException {
+        long first = Long.MIN_VALUE;
+        long last = Long.MAX_VALUE;
+        List<String[]> marks = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), FileHelper.CHARSET))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                String[] parts = line.split(",", -1);
+                if (parts[0].equals("S") && parts.length >= 3) {
+                    first = Long.parseLong(parts[1]);
+                    last = Long.parseLong(parts[2]);
+                } else if (parts[0].equals("B") && parts.length >= 3) {
+                    marks.add(parts);
+                }
+            }
+        }
+        // An empty index still covers the file from its start
+        if (marks.isEmpty()) marks.add(new String[] { "B", String.valueOf(Long.MIN_VALUE), "0" });
+
+        long[] times = new long[marks.size()];
+        long[] offsets = new long[marks.size()];
+        List<Set<String>> keys = new ArrayList<>(marks.size());
+        for (int i = 0; i < marks.size(); i++) {
+            String[] parts = marks.get(i);
+            times[i] = Long.parseLong(parts[1]);
+            offsets[i] = Long.parseLong(parts[2]);
+            keys.add(parts.length >= 4 ? new HashSet<>(Arrays.asList(parts[3].split(";"))) : null);
+        }
+        // The first block may start with lines that carry no timestamp
+        times[0] = Math.min(times[0], first);
+        return new SegmentIndex(first, last, times, offsets, keys);
+    }
+
+    private static long toEpochSecond(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+
+    // Per-line checks, cheapest first
+    private static final class Filter {
+        private final String from;
+        private final String to;
+        private final EnumSet<RailwayEvent> events;
+        private final String trainId;
+
+        Filter(LocalDateTime from, LocalDateTime to, EnumSet<RailwayEvent> events, String trainId) {
+            // Timestamps are fixed width, so lines can be range-checked as strings
+            this.from = from == null ? null : RotatingLog.TIMESTAMP_FORMAT.format(from);
+            this.to = to == null ? null : RotatingLog.TIMESTAMP_FORMAT.format(to);
+            this.events = events;
+            this.trainId = trainId;
+        }
+
+        // Keys are null for blocks indexed without them
+        boolean mayMatch(Set<String> keys) {
+            if (keys == null) return true;
+            for (RailwayEvent event : events) {
+                if (trainId != null) {
+                    if (keys.contains(event.name() + "/" + trainId)) return true;
+                    continue;
+                }
+                for (String key : keys) {
+                    if (key.startsWith(event.name()) && key.startsWith("/", event.name().length())) return true;
+                }
+            }
+            return false;
+        }
+
+        void accept(String line, List<Entry> results) {
+            if (RotatingLog.timestampOf(line) < 0) return;
+            String timestamp = line.substring(1, 20);
+            if (from != null && timestamp.compareTo(from) < 0) return;
+            if (to != null && timestamp.compareTo(to) > 0) return;
+            if (trainId != null && !line.contains(trainId)) return;
+
+            RailwayEvent event = AdminActivityLog.eventOf(line);
+            if (event == null || !events.contains(event)) return;
+            String id = AdminActivityLog.trainIdOf(line);
+            if (trainId != null && !trainId.equals(id)) return;
+
+            results.add(new Entry(LocalDateTime.parse(timestamp, RotatingLog.TIMESTAMP_FORMAT), event, id,
+                    AdminActivityLog.messageOf(line)));
+        }
+    }
+
+    // Reads a mapped region without copying it up front
+    private static final class BufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) {
+            if (!buffer.hasRemaining()) return -1;
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(target, offset, count);
+            return count;
+        }
+
+        // GZIPInputStream checks this to decide whether another member follows
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
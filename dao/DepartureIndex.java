@@ -0,0 +1,93 @@
+// DepartureIndex.java
+package dao;
+
+import model.Train;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Train IDs ordered by departure (date, then time, then train ID).
+ * Exact-date, date-range and "next N after" queries are a logarithmic seek
+ * followed by an in-order walk, so results never need sorting afterwards.
+ * Trains whose date or time cannot be parsed are left out of the index.
+ */
+public class DepartureIndex {
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("H:mm");
+
+    private static final class Departure implements Comparable<Departure> {
+        private final LocalDateTime when;
+        private final String trainId;
+
+        Departure(LocalDateTime when, String trainId) {
+            this.when = when;
+            this.trainId = trainId;
+        }
+
+        @Override
+        public int compareTo(Departure other) {
+            int byTime = when.compareTo(other.when);
+            return byTime != 0 ? byTime : trainId.compareTo(other.trainId);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Departure && compareTo((Departure) o) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(when, trainId);
+        }
+    }
+
+    private final NavigableSet<Departure> departures = new ConcurrentSkipListSet<>();
+
+    // Trains leaving on any day from 'from' to 'to', both inclusive
+    public List<String> between(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) return new ArrayList<>();
+        Departure low = new Departure(from.atStartOfDay(), "");
+        Departure high = new Departure(to.plusDays(1).atStartOfDay(), "");
+        List<String> ids = new ArrayList<>();
+        for (Departure departure : departures.subSet(low, true, high, false)) {
+            ids.add(departure.trainId);
+        }
+        return ids;
+    }
+
+    // The first 'limit' trains leaving at or after the given moment
+    public List<String> after(LocalDateTime moment, int limit) {
+        List<String> ids = new ArrayList<>();
+        Iterator<Departure> it = departures.tailSet(new Departure(moment, ""), true).iterator();
+        while (it.hasNext() && ids.size() < limit) {
+            ids.add(it.next().trainId);
+        }
+        return ids;
+    }
+
+    void add(Train train) {
+        Departure departure = departureOf(train);
+        if (departure != null) departures.add(departure);
+    }
+
+    void remove(Train train) {
+        Departure departure = departureOf(train);
+        if (departure != null) departures.remove(departure);
+    }
+
+    private static Departure departureOf(Train train) {
+        if (train.getDate() == null || train.getTime() == null) return null;
+        try {
+            LocalDate date = LocalDate.parse(train.getDate().trim());
+            LocalTime time = LocalTime.parse(train.getTime().trim(), TIME_FORMATTER);
+            return new Departure(date.atTime(time), train.getTrainId());
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+// NameIndex.java
+package dao;
+
+import model.Train;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Trigram index over train names for case-insensitive substring search.
+ * A query is answered by intersecting the posting lists of its trigrams,
+ * smallest first, and confirming the survivors with a real substring check.
+ * Queries shorter than a trigram fall back to a scan of the indexed names.
+ *
+ * Matches are ranked exact name, then name prefix, then word prefix, then
+ * any other substring, with train ID breaking ties.
+ */
+public class NameIndex {
+    private static final int GRAM = 3;
+
+    private final Map<String, Set<String>> postings = new ConcurrentHashMap<>();
+    private final Map<String, String> namesById = new ConcurrentHashMap<>();
+
+    public List<String> search(String query) {
+        String needle = normalize(query);
+        if (needle.isEmpty()) return new ArrayList<>();
+
+        Collection<String> candidates = needle.length() < GRAM ? namesById.keySet() : candidatesFor(needle);
+        Map<String, Integer> ranks = new HashMap<>();
+        for (String id : candidates) {
+            String name = namesById.get(id);
+            if (name == null) continue;
+            int rank = rank(name, needle);
+            if (rank >= 0) ranks.put(id, rank);
+        }
+        List<String> ids = new ArrayList<>(ranks.keySet());
+        ids.sort(Comparator.<String>comparingInt(ranks::get).thenComparing(Comparator.naturalOrder()));
+        return ids;
+    }
+
+    void add(Train train) {
+        String name = normalize(train.getName());
+        namesById.put(train.getTrainId(), name);
+        for (String gram : grams(name)) {
+            postings.computeIfAbsent(gram, k -> ConcurrentHashMap.newKeySet()).add(train.getTrainId());
+        }
+    }
+
+    void remove(Train train) {
+        String name = namesById.remove(train.getTrainId());
+        if (name == null) return;
+        for (String gram : grams(name)) {
+            Set<String> ids = postings.get(gram);
+            if (ids != null) {
+                ids.remove(train.getTrainId());
+                if (ids.isEmpty()) postings.remove(gram, ids);
+            }
+        }
+    }
+
+    private Collection<String> candidatesFor(String needle) {
+        List<Set<String>> lists = new ArrayList<>();
+        for (String gram : grams(needle)) {
+            Set<String> ids = postings.get(gram);
+            if (ids == null) return Collections.emptySet();
+            lists.add(ids);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+
+        Set<String> result = new HashSet<>(lists.get(0));
+        for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+            result.retainAll(lists.get(i));
+        }
+        return result;
+    }
+
+    // 0 exact, 1 prefix, 2 word prefix, 3 substring, -1 no match
+    private static int rank(String name, String needle) {
+        if (name.equals(needle)) return 0;
+        if (name.startsWith(needle)) return 1;
+        int at = name.indexOf(needle);
+        if (at < 0) return -1;
+        while (at > 0) {
+            if (name.charAt(at - 1) == ' ') return 2;
+            at = name.indexOf(needle, at + 1);
+        }
+        return 3;
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().replaceAll("\\s+", " ").toLowerCase();
+    }
+}
@@ -0,0 +1,137 @@
+// PnrAllocator.java
+package dao;
+
+import util.FileHelper;
+
+import java.security.SecureRandom;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Hands out PNRs from a monotonic sequence passed through a keyed Feistel
+ * permutation of the 5-digit space, so consecutive bookings get unrelated,
+ * non-guessable numbers without any collision retries.
+ *
+ * The sequence is leased from data/pnr.seq in blocks: the file always holds
+ * the end of the current block, so a restart skips at most one block and never
+ * repeats a number. When the sequence runs off the end of the space a new
+ * epoch starts with a fresh permutation, reusing numbers whose tickets were
+ * cancelled. Numbers still held by a live ticket or waitlist entry (including
+ * PNRs issued before the allocator existed) are always skipped. PNR status is
+ * only shown to the user who booked it (BookingService.status), so someone
+ * holding a cancelled number never sees the passenger it was reissued to.
+ */
+public class PnrAllocator {
+    private static final String SEQUENCE_FILE = "data/pnr.seq";
+    private static final int DOMAIN = 100_000;
+    private static final int HALF_BITS = 9;
+    private static final int HALF_MASK = (1 << HALF_BITS) - 1;
+    private static final int ROUNDS = 4;
+    private static final int LEASE_BLOCK = 256;
+    private static PnrAllocator instance;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private long seed;
+    private int epoch;
+    private int next;
+    private int leasedUpTo;
+    private int[] roundKeys;
+
+    private PnrAllocator() {
+        List<String> lines = FileHelper.fileExists(SEQUENCE_FILE)
+                ? FileHelper.readFile(SEQUENCE_FILE) : Collections.emptyList();
+        if (lines.isEmpty()) {
+            seed = new SecureRandom().nextLong();
+        } else {
+            String[] state = lines.get(0).split(",");
+            seed = Long.parseLong(state[0].trim());
+            epoch = Integer.parseInt(state[1].trim());
+            next = Integer.parseInt(state[2].trim());
+        }
+        leasedUpTo = next;
+        roundKeys = keysFor(epoch);
+    }
+
+    public static synchronized PnrAllocator getInstance() {
+        if (instance == null) {
+            instance = new PnrAllocator();
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the next free PNR. inUse tells the allocator which numbers are
+     * still held, e.g. by legacy random PNRs or after the space wrapped.
+     * Throws IllegalStateException once every number in the space is held.
+     */
+    public String allocate(Predicate<String> inUse) {
+        lock.lock();
+        try {
+            // Two passes guarantee one whole epoch was tried before giving up
+            for (int scanned = 0; scanned < 2 * DOMAIN; scanned++) {
+                if (next == DOMAIN) {
+                    epoch++;
+                    next = 0;
+                    leasedUpTo = 0;
+                    roundKeys = keysFor(epoch);
+                }
+                if (next == leasedUpTo) {
+                    leasedUpTo = Math.min(next + LEASE_BLOCK, DOMAIN);
+                    FileHelper.overwriteFile(SEQUENCE_FILE,
+                            Collections.singletonList(seed + "," + epoch + "," + leasedUpTo));
+                }
+                String pnr = format(permute(next++));
+                if (!inUse.test(pnr)) {
+                    return pnr;
+                }
+            }
+            throw new IllegalStateException("No free PNRs left: all " + DOMAIN + " numbers are in use");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Cycle-walks the 18-bit Feistel permutation until it lands inside the domain
+    private int permute(int value) {
+        int result = value;
+        do {
+            result = encrypt(result);
+        } while (result >= DOMAIN);
+        return result;
+    }
+
+    private int encrypt(int value) {
+        int left = value >>> HALF_BITS;
+        int right = value & HALF_MASK;
+        for (int round = 0; round < ROUNDS; round++) {
+            int mixed = left ^ (mix(right ^ roundKeys[round]) & HALF_MASK);
+            left = right;
+            right = mixed;
+        }
+        return (left << HALF_BITS) | right;
+    }
+
+    private int[] keysFor(int epoch) {
+        int[] keys = new int[ROUNDS];
+        for (int round = 0; round < ROUNDS; round++) {
+            keys[round] = mix((int) (seed ^ (seed >>> 32)) + epoch * 0x9E3779B9 + round * 0x7F4A7C15);
+        }
+        return keys;
+    }
+
+    // murmur3 finalizer
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static String format(int number) {
+        return "PNR" + String.format("%05d", number);
+    }
+}
@@ -0,0 +1,354 @@
+// PnrIndex.java
+package dao;
+
+import util.FileHelper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Persistent PNR -> (segment, byte offset) index over the ticket journals,
+ * with a secondary index from normalized user email to that user's PNRs.
+ * Every booking and cancellation appends one line to data/tickets/pnr.idx and
+ * then updates the in-memory map, so lookups never scan ticket segments. Each
+ * line also carries the segment length it leaves behind; on startup the index
+ * is trusted only if those lengths still match the segment files, otherwise
+ * TicketStore rebuilds it from the journals.
+ *
+ * A failed index write is thrown before memory changes. If memory has to be
+ * resynced from a journal without a log line, the index is marked stale and
+ * the next write replaces pnr.idx with a full snapshot first.
+ *
+ * Line formats:
+ *   +,PNR,TRAIN,offset,segmentLength,email    booking record at offset
+ *   -,PNR,TRAIN,segmentLength           tombstone
+ *   =,TRAIN,segmentLength,records,tombstones   segment watermark
+ */
+public class PnrIndex {
+    private static final int SNAPSHOT_SLACK = 64;
+
+    public static final class Location {
+        private final String trainId;
+        private final long offset;
+        private final String userEmail;
+
+        Location(String trainId, long offset, String userEmail) {
+            this.trainId = trainId;
+            this.offset = offset;
+            this.userEmail = normalizeEmail(userEmail);
+        }
+
+        public String getTrainId() { return trainId; }
+        public long getOffset() { return offset; }
+        public String getUserEmail() { return userEmail; }
+    }
+
+    // Running size and line counts of one segment journal
+    static final class SegmentState {
+        long length;
+        int records;
+        int tombstones;
+
+        SegmentState(long length, int records, int tombstones) {
+            this.length = length;
+            this.records = records;
+            this.tombstones = tombstones;
+        }
+    }
+
+    private final String indexFile;
+    private final Map<String, Location> locations = new ConcurrentHashMap<>();
+    private final Map<String, SegmentState> segments = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> pnrsByUser = new ConcurrentHashMap<>();
+    // Guards the index log and the segment counters
+    private final ReentrantLock lock = new ReentrantLock();
+    private int logLines;
+    private boolean stale;
+
+    PnrIndex(String indexFile) {
+        this.indexFile = indexFile;
+    }
+
+    /**
+     * Loads the index log and checks it against the current segment sizes.
+     * Returns false when the index is missing, unreadable or stale.
+     */
+    boolean load(Map<String, Long> segmentLengths) {
+        lock.lock();
+        try {
+            locations.clear();
+            segments.clear();
+            pnrsByUser.clear();
+            logLines = 0;
+            if (!FileHelper.fileExists(indexFile)) {
+                return segmentLengths.values().stream().allMatch(length -> length == 0);
+            }
+            try {
+                FileHelper.lines(indexFile).forEach(line -> {
+                    apply(line.split(","));
+                    logLines++;
+                });
+            } catch (RuntimeException e) {
+                return false;
+            }
+            for (Map.Entry<String, Long> entry : segmentLengths.entrySet()) {
+                SegmentState state = segments.get(entry.getKey());
+                long indexed = state == null ? 0 : state.length;
+                if (indexed != entry.getValue()) {
+                    return false;
+                }
+            }
+            if (logLines > locations.size() * 4 + SNAPSHOT_SLACK) {
+                writeSnapshot();
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void apply(String[] f) {
+        switch (f[0]) {
+            case "+":
+                put(f[1], new Location(f[2], Long.parseLong(f[3]), f[5]));
+                SegmentState booked = segment(f[2]);
+                booked.length = Long.parseLong(f[4]);
+                booked.records++;
+                break;
+            case "-":
+                remove(f[1]);
+                SegmentState cancelled = segment(f[2]);
+                cancelled.length = Long.parseLong(f[3]);
+                cancelled.tombstones++;
+                break;
+            case "=":
+                segments.put(f[1], new SegmentState(Long.parseLong(f[2]),
+                        Integer.parseInt(f[3]), Integer.parseInt(f[4])));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown index entry: " + f[0]);
+        }
+    }
+
+    public Location get(String pnr) {
+        return pnr == null ? null : locations.get(pnr.trim().toUpperCase());
+    }
+
+    // PNRs booked by this user, in booking order
+    public List<String> pnrsFor(String userEmail) {
+        Set<String> pnrs = pnrsByUser.get(normalizeEmail(userEmail));
+        if (pnrs == null) return new ArrayList<>();
+        synchronized (pnrs) {
+            return new ArrayList<>(pnrs);
+        }
+    }
+
+    public boolean contains(String pnr) {
+        return get(pnr) != null;
+    }
+
+    public int size() {
+        return locations.size();
+    }
+
+    // Copy of a segment's counters, safe to read outside the index lock
+    SegmentState stateOf(String trainId) {
+        lock.lock();
+        try {
+            SegmentState state = segment(trainId);
+            return new SegmentState(state.length, state.records, state.tombstones);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private SegmentState segment(String trainId) {
+        return segments.computeIfAbsent(trainId, k -> new SegmentState(0, 0, 0));
+    }
+
+    void recordBooking(String pnr, String trainId, long offset, long segmentLength, String userEmail) {
+        lock.lock();
+        try {
+            String[] entry = {"+", pnr, trainId, String.valueOf(offset), String.valueOf(segmentLength), normalizeEmail(userEmail)};
+            log(List.of(String.join(",", entry)));
+            apply(entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Records consecutive bookings in one segment with a single index append
+    void recordBookings(List<String[]> bookings) {
+        lock.lock();
+        try {
+            List<String[]> entries = new ArrayList<>(bookings.size());
+            List<String> lines = new ArrayList<>(bookings.size());
+            for (String[] booking : bookings) {
+                String[] entry = {"+", booking[0], booking[1], booking[2], booking[3], normalizeEmail(booking[4])};
+                entries.add(entry);
+                lines.add(String.join(",", entry));
+            }
+            log(lines);
+            for (String[] entry : entries) {
+                apply(entry);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void recordCancellation(String pnr, String trainId, long segmentLength) {
+        lock.lock();
+        try {
+            String[] entry = {"-", pnr, trainId, String.valueOf(segmentLength)};
+            log(List.of(String.join(",", entry)));
+            apply(entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the entries of one segment after it was rewritten by compaction.
+     * The live PNRs are re-recorded with their new offsets.
+     */
+    void replaceSegment(String trainId, Map<String, Location> moved, long segmentLength) {
+        lock.lock();
+        try {
+            SegmentState state = new SegmentState(segmentLength, moved.size(), 0);
+            List<String> lines = new ArrayList<>(moved.size() + 1);
+            for (Map.Entry<String, Location> entry : moved.entrySet()) {
+                lines.add(entryLine(entry.getKey(), entry.getValue(), segmentLength));
+            }
+            lines.add(watermark(trainId, state));
+            log(lines);
+            for (Map.Entry<String, Location> entry : moved.entrySet()) {
+                put(entry.getKey(), entry.getValue());
+            }
+            segments.put(trainId, state);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces one segment's entries in memory with what its journal holds,
+     * after a journal write whose index line could not be written. The log no
+     * longer matches memory, so the next write starts with a snapshot.
+     */
+    void resync(String trainId, Map<String, Location> live, SegmentState state) {
+        lock.lock();
+        try {
+            List<String> dropped = new ArrayList<>();
+            for (Map.Entry<String, Location> entry : locations.entrySet()) {
+                if (entry.getValue().getTrainId().equals(trainId)) {
+                    dropped.add(entry.getKey());
+                }
+            }
+            dropped.forEach(this::remove);
+            for (Map.Entry<String, Location> entry : live.entrySet()) {
+                put(entry.getKey(), entry.getValue());
+            }
+            segments.put(trainId, state);
+            stale = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Rebuilds the whole index from freshly folded segments and snapshots it to disk
+    void rebuild(Map<String, Location> live, Map<String, SegmentState> states) {
+        lock.lock();
+        try {
+            locations.clear();
+            segments.clear();
+            pnrsByUser.clear();
+            for (Map.Entry<String, Location> entry : live.entrySet()) {
+                put(entry.getKey(), entry.getValue());
+            }
+            segments.putAll(states);
+            stale = true;
+            writeSnapshot();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // A failed snapshot leaves the index stale, so the next write tries again
+    private void writeSnapshot() {
+        try {
+            snapshot();
+        } catch (IOException e) {
+            System.err.println("Error writing PNR index snapshot: " + e.getMessage());
+        }
+    }
+
+    // Watermarks go last: replaying them resets the counters the '+' lines bumped
+    private void snapshot() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, Location> entry : locations.entrySet()) {
+            lines.add(entryLine(entry.getKey(), entry.getValue(), segment(entry.getValue().getTrainId()).length));
+        }
+        for (Map.Entry<String, SegmentState> segment : segments.entrySet()) {
+            lines.add(watermark(segment.getKey(), segment.getValue()));
+        }
+        FileHelper.overwriteOrThrow(indexFile, lines);
+        logLines = lines.size();
+        stale = false;
+    }
+
+    private void put(String pnr, Location location) {
+        Location previous = locations.put(pnr, location);
+        if (previous != null && !previous.getUserEmail().equals(location.getUserEmail())) {
+            unlinkUser(pnr, previous.getUserEmail());
+        }
+        Set<String> pnrs = pnrsByUser.computeIfAbsent(location.getUserEmail(),
+                k -> Collections.synchronizedSet(new LinkedHashSet<>()));
+        pnrs.add(pnr);
+    }
+
+    private void remove(String pnr) {
+        Location previous = locations.remove(pnr);
+        if (previous != null) {
+            unlinkUser(pnr, previous.getUserEmail());
+        }
+    }
+
+    private void unlinkUser(String pnr, String userEmail) {
+        Set<String> pnrs = pnrsByUser.get(userEmail);
+        if (pnrs != null) {
+            pnrs.remove(pnr);
+            if (pnrs.isEmpty()) pnrsByUser.remove(userEmail);
+        }
+    }
+
+    private static String entryLine(String pnr, Location location, long segmentLength) {
+        return String.join(",", "+", pnr, location.getTrainId(), String.valueOf(location.getOffset()),
+                String.valueOf(segmentLength), location.getUserEmail());
+    }
+
+    static String normalizeEmail(String email) {
+        return email == null ? "" : email.trim().toLowerCase();
+    }
+
+    private static String watermark(String trainId, SegmentState state) {
+        return String.join(",", "=", trainId, String.valueOf(state.length),
+                String.valueOf(state.records), String.valueOf(state.tombstones));
+    }
+
+    // Caller holds the lock; nothing in memory may change until this returns
+    private void log(List<String> lines) {
+        try {
+            if (stale) {
+                snapshot();
+            }
+            FileHelper.appendLinesOrThrow(indexFile, lines);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write PNR index " + indexFile, e);
+        }
+        logLines += lines.size();
+    }
+}
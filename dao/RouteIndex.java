@@ -0,0 +1,43 @@
+// RouteIndex.java
+package dao;
+
+import model.Train;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps a normalized (source, destination) pair to the IDs of the trains on
+ * that route, so a route search is one hash probe. Station names are matched
+ * case-insensitively with surrounding and repeated whitespace ignored.
+ */
+public class RouteIndex {
+    private final Map<String, Set<String>> trainsByRoute = new ConcurrentHashMap<>();
+
+    public Set<String> find(String source, String destination) {
+        Set<String> ids = trainsByRoute.get(key(source, destination));
+        return ids == null ? Collections.emptySet() : new TreeSet<>(ids);
+    }
+
+    void add(Train train) {
+        trainsByRoute.computeIfAbsent(key(train.getSource(), train.getDestination()),
+                k -> ConcurrentHashMap.newKeySet()).add(train.getTrainId());
+    }
+
+    void remove(Train train) {
+        String key = key(train.getSource(), train.getDestination());
+        Set<String> ids = trainsByRoute.get(key);
+        if (ids != null) {
+            ids.remove(train.getTrainId());
+            if (ids.isEmpty()) trainsByRoute.remove(key, ids);
+        }
+    }
+
+    private static String key(String source, String destination) {
+        return normalize(source) + '\u0001' + normalize(destination);
+    }
+
+    private static String normalize(String station) {
+        return station == null ? "" : station.trim().replaceAll("\\s+", " ").toLowerCase();
+    }
+}
@@ -0,0 +1,122 @@
+// SeatInventory.java
+package dao;
+
+import model.Train;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Authoritative available-seat counters, one AtomicInteger per train.
+ * Reservations and releases are compare-and-set operations on the counter, so
+ * concurrent bookings can never take the same last seat; the new count is then
+ * written through to trains.txt.
+ *
+ * Counters are seeded lazily from TrainRepository. An admin edit drops only
+ * that train's counter (callers reset it); all of them are dropped when the
+ * repository reloads the timetable from disk after an outside change.
+ */
+public class SeatInventory {
+    private static SeatInventory instance;
+
+    private final TrainRepository repository = TrainRepository.getInstance();
+    private final Map<String, AtomicInteger> counters = new ConcurrentHashMap<>();
+    private final Map<String, ReentrantLock> writeLocks = new ConcurrentHashMap<>();
+    private volatile long seenGeneration;
+
+    private SeatInventory() {
+        seenGeneration = repository.generation();
+    }
+
+    public static synchronized SeatInventory getInstance() {
+        if (instance == null) {
+            instance = new SeatInventory();
+        }
+        return instance;
+    }
+
+    /**
+     * Takes one seat if any is left. Returns false when the train is sold out
+     * or does not exist.
+     */
+    public boolean tryReserve(String trainId) {
+        AtomicInteger counter = counterFor(trainId);
+        if (counter == null) return false;
+        int current;
+        do {
+            current = counter.get();
+            if (current <= 0) return false;
+        } while (!counter.compareAndSet(current, current - 1));
+        persist(trainId, counter);
+        return true;
+    }
+
+    /**
+     * Takes as many seats as are left, up to max, in one compare-and-set and
+     * one write. Returns the number taken.
+     */
+    public int reserveUpTo(String trainId, int max) {
+        AtomicInteger counter = counterFor(trainId);
+        if (counter == null || max <= 0) return 0;
+        int current;
+        int taken;
+        do {
+            current = counter.get();
+            taken = Math.min(current, max);
+            if (taken <= 0) return 0;
+        } while (!counter.compareAndSet(current, current - taken));
+        persist(trainId, counter);
+        return taken;
+    }
+
+    // Gives one seat back, e.g. after a cancellation or a failed booking
+    public boolean release(String trainId) {
+        return release(trainId, 1);
+    }
+
+    public boolean release(String trainId, int count) {
+        AtomicInteger counter = counterFor(trainId);
+        if (counter == null) return false;
+        counter.addAndGet(count);
+        persist(trainId, counter);
+        return true;
+    }
+
+    public int available(String trainId) {
+        AtomicInteger counter = counterFor(trainId);
+        return counter == null ? 0 : counter.get();
+    }
+
+    // Forgets a train's counter so the next call reseeds it from the repository
+    public void reset(String trainId) {
+        if (trainId != null) counters.remove(trainId.trim().toUpperCase());
+    }
+
+    private AtomicInteger counterFor(String trainId) {
+        if (trainId == null) return null;
+        long generation = repository.generation();
+        if (generation != seenGeneration) {
+            counters.clear();
+            seenGeneration = generation;
+        }
+        String key = trainId.trim().toUpperCase();
+        AtomicInteger counter = counters.get(key);
+        if (counter != null) return counter;
+        Train train = repository.findById(key);
+        if (train == null) return null;
+        return counters.computeIfAbsent(key, k -> new AtomicInteger(train.getSeats()));
+    }
+
+    // Writes under the train's write lock read the latest value, so the last write always wins with the current count
+    private void persist(String trainId, AtomicInteger counter) {
+        ReentrantLock lock = writeLocks.computeIfAbsent(trainId.trim().toUpperCase(), k -> new ReentrantLock());
+        lock.lock();
+        try {
+            repository.updateSeats(trainId, counter.get());
+        } finally {
+            lock.unlock();
+        }
+    }
+}
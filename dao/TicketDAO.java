@@ -4,21 +4,23 @@ package dao;
 import model.Ticket;
 import model.Train;
 import model.User;
+import service.AdminReport;
+import service.BookingRequest;
+import service.BookingResult;
+import service.BookingService;
+import service.CancellationResult;
+import service.PnrStatus;
+import service.TrainService;
 import util.ConsoleColors;
-import util.FileHelper;
-import events.EventManager;
-import events.RailwayEvent;
+import util.StripedLockManager;
 
 import java.util.*;
-import java.util.regex.Pattern;
 
+// Console prompts and output for bookings; BookingService does the work
 public class TicketDAO {
-    private final String ticketFile = "data/tickets.txt";
-    private final String waitlistFile = "data/waitlist.txt";
-    private final TrainDAO trainDAO = new TrainDAO();
+    private final BookingService bookingService = BookingService.getInstance();
+    private final TrainService trainService = TrainService.getInstance();
     private final Scanner scanner = new Scanner(System.in);
-    private static final Pattern PNR_PATTERN = Pattern.compile("^PNR[0-9]{5}$");
-    private static final Pattern CLASS_PATTERN = Pattern.compile("^(General|Sleeper|AC)$", Pattern.CASE_INSENSITIVE);
 
     public void bookTicket(User user) {
         try {
@@ -30,7 +32,7 @@ public class TicketDAO {
             while(true) {
                 System.out.print("Enter Train ID: ");
                 trainId = scanner.nextLine().trim();
-                train = trainDAO.getTrainById(trainId);
+                train = trainService.findTrain(trainId);
                 if(train == null) {
                     System.out.println(ConsoleColors.RED + "Train not found. Please enter a valid Train ID." + ConsoleColors.RESET);
                     continue;
@@ -43,7 +45,7 @@ public class TicketDAO {
             while(true) {
                 System.out.print("Passenger Name: ");
                 pname = scanner.nextLine().trim();
-                if(pname.isEmpty() || !pname.matches("[a-zA-Z ]+")) {
+                if(!BookingService.isValidPassengerName(pname)) {
                     System.out.println(ConsoleColors.RED + "Invalid name! Only letters and spaces allowed." + ConsoleColors.RESET);
                     continue;
                 }
@@ -69,32 +71,23 @@ public class TicketDAO {
             while(true) {
                 System.out.print("Enter Travel Class (General/Sleeper/AC): ");
                 travelClass = scanner.nextLine().trim();
-                if(!CLASS_PATTERN.matcher(travelClass).matches()) {
+                if(!BookingService.isValidTravelClass(travelClass)) {
                     System.out.println(ConsoleColors.RED + "Invalid class! Please choose General, Sleeper, or AC." + ConsoleColors.RESET);
                     continue;
                 }
                 break;
             }
 
-            if (train.getSeats() <= 0) {
+            BookingResult result = bookingService.book(new BookingRequest(user.getEmail(), trainId, pname, page, travelClass));
+            if (!result.isConfirmed()) {
                 System.out.println(ConsoleColors.YELLOW + "No seats available. Adding to waitlist..." + ConsoleColors.RESET);
-                String waitlistEntry = String.join(",", user.getEmail(), trainId, pname, 
-                    String.valueOf(page), travelClass);
-                FileHelper.appendToFile(waitlistFile, waitlistEntry);
-                System.out.println(ConsoleColors.GREEN + "Added to waitlist successfully!" + ConsoleColors.RESET);
+                System.out.println(ConsoleColors.GREEN + "Added to waitlist successfully! PNR: " + result.pnr()
+                        + " (Waitlist position: " + result.waitlistPosition() + ")" + ConsoleColors.RESET);
                 return;
             }
 
-            String pnr = generatePNR();
-            Ticket ticket = new Ticket(pnr, trainId, user.getEmail(), pname, page, travelClass);
-            FileHelper.appendToFile(ticketFile, ticket.toCSV());
-            trainDAO.updateTrainSeats(trainId, train.getSeats() - 1);
-
             System.out.println(ConsoleColors.GREEN + "\nBooking successful!" + ConsoleColors.RESET);
-            printTicketReceipt(ticket, train);
-
-            // Dispatch TICKET_BOOKED event
-            EventManager.getInstance().dispatchEvent(RailwayEvent.TICKET_BOOKED, new Object[]{ticket, train});
+            printTicketReceipt(result.ticket(), result.train());
 
         } catch (Exception e) {
             System.out.println(ConsoleColors.RED + "Error during ticket booking: " + e.getMessage() + ConsoleColors.RESET);
@@ -106,113 +99,55 @@ public class TicketDAO {
             System.out.print("Enter PNR to cancel: ");
             String pnr = scanner.nextLine().trim();
             
-            if(!PNR_PATTERN.matcher(pnr).matches()) {
+            if(!BookingService.isValidPnr(pnr)) {
                 System.out.println(ConsoleColors.RED + "Invalid PNR format! PNR should be in format PNR12345" + ConsoleColors.RESET);
                 return;
             }
 
-            List<Ticket> tickets = getAllTickets();
-            boolean found = false;
-            String trainIdToFreeSeat = "";
-            Ticket cancelledTicket = null; // To store the cancelled ticket for event dispatch
-
-            Iterator<Ticket> it = tickets.iterator();
-            while (it.hasNext()) {
-                Ticket t = it.next();
-                if (t.getPnr().equalsIgnoreCase(pnr) && t.getUserEmail().equalsIgnoreCase(user.getEmail())) {
-                    trainIdToFreeSeat = t.getTrainId();
-                    cancelledTicket = t;
-                    it.remove();
-                    found = true;
-                    break;
-                }
-            }
-
-            if (!found) {
+            CancellationResult result = bookingService.cancel(pnr, user.getEmail());
+            if (result == null) {
                 System.out.println(ConsoleColors.RED + "Ticket not found or you don't have permission to cancel this ticket." + ConsoleColors.RESET);
                 return;
             }
-
-            List<String> updated = new ArrayList<>();
-            for (Ticket t : tickets) updated.add(t.toCSV());
-            FileHelper.overwriteFile(ticketFile, updated);
-            
-            Train train = trainDAO.getTrainById(trainIdToFreeSeat);
-            if (train != null) {
-                trainDAO.updateTrainSeats(trainIdToFreeSeat, train.getSeats() + 1);
-            }
             System.out.println(ConsoleColors.GREEN + "Ticket cancelled successfully." + ConsoleColors.RESET);
-            
-            // Dispatch TICKET_CANCELLED event
-            if (cancelledTicket != null) {
-                EventManager.getInstance().dispatchEvent(RailwayEvent.TICKET_CANCELLED, new Object[]{cancelledTicket, user.getEmail()});
-            }
-
-            processWaitlist(trainIdToFreeSeat);
+            printPromoted(result.cancelled().getTrainId(), result.promoted());
 
         } catch (Exception e) {
             System.out.println(ConsoleColors.RED + "Error during ticket cancellation: " + e.getMessage() + ConsoleColors.RESET);
         }
     }
 
-    private void processWaitlist(String trainId) {
-        try {
-            List<String> waitlist = FileHelper.readFile(waitlistFile);
-            if (waitlist.isEmpty()) return;
-
-            List<String> updatedWaitlist = new ArrayList<>();
-            boolean assigned = false;
-            Train train = trainDAO.getTrainById(trainId);
-
-            for (String entry : waitlist) {
-                if (assigned || train == null || train.getSeats() <= 0) {
-                    updatedWaitlist.add(entry);
-                    continue;
-                }
+    private void printPromoted(String trainId, List<Ticket> confirmed) {
+        if (confirmed.isEmpty()) return;
+        Train train = trainService.findTrain(trainId);
+        if (train == null) return;
+        for (Ticket confirmedTicket : confirmed) {
+            System.out.println(ConsoleColors.GREEN + "Waitlist ticket confirmed for " + confirmedTicket.getPassengerName() + " on " + train.getName() + " (PNR: " + confirmedTicket.getPnr() + ")!" + ConsoleColors.RESET);
+            printTicketReceipt(confirmedTicket, train);
+        }
+    }
 
-                String[] parts = entry.split(",");
-                if (parts.length == 5 && parts[1].equalsIgnoreCase(trainId)) {
-                    String userEmail = parts[0];
-                    String passengerName = parts[2];
-                    int passengerAge = Integer.parseInt(parts[3]);
-                    String travelClass = parts[4];
-
-                    // Check if a seat became available
-                    if (train.getSeats() > 0) {
-                        String pnr = generatePNR();
-                        Ticket confirmedTicket = new Ticket(pnr, trainId, userEmail, passengerName, passengerAge, travelClass);
-                        FileHelper.appendToFile(ticketFile, confirmedTicket.toCSV());
-                        trainDAO.updateTrainSeats(trainId, train.getSeats() - 1); // Decrease seat count
-
-                        System.out.println(ConsoleColors.GREEN + "Waitlist ticket confirmed for " + passengerName + " on " + train.getName() + " (PNR: " + pnr + ")!" + ConsoleColors.RESET);
-                        printTicketReceipt(confirmedTicket, train);
-                        assigned = true; // Only assign one waitlist ticket per cancellation for simplicity
-
-                        // Dispatch WAITLIST_PROCESSED event
-                        EventManager.getInstance().dispatchEvent(RailwayEvent.WAITLIST_PROCESSED, new Object[]{confirmedTicket, entry});
-
-                    } else {
-                        updatedWaitlist.add(entry); // No seats, keep on waitlist
-                    }
-                } else {
-                    updatedWaitlist.add(entry); // Not for this train or malformed entry
-                }
+    // Admin action: fill free seats on every train from its waitlist
+    public void rebalanceWaitlists() {
+        try {
+            System.out.println(ConsoleColors.CYAN + "\n--- Rebalance Waitlists ---" + ConsoleColors.RESET);
+            Map<String, List<Ticket>> confirmed = bookingService.rebalanceWaitlists();
+            if (confirmed.isEmpty()) {
+                System.out.println(ConsoleColors.YELLOW + "No waitlisted passengers could be confirmed." + ConsoleColors.RESET);
+                return;
+            }
+            for (Map.Entry<String, List<Ticket>> entry : confirmed.entrySet()) {
+                System.out.println(ConsoleColors.GREEN + entry.getKey() + ": confirmed " + entry.getValue().size()
+                        + " waitlisted passenger(s), " + bookingService.waitlistSize(entry.getKey()) + " still waiting." + ConsoleColors.RESET);
             }
-            FileHelper.overwriteFile(waitlistFile, updatedWaitlist);
-
         } catch (Exception e) {
-            System.out.println(ConsoleColors.RED + "Error processing waitlist: " + e.getMessage() + ConsoleColors.RESET);
+            System.out.println(ConsoleColors.RED + "Error rebalancing waitlists: " + e.getMessage() + ConsoleColors.RESET);
         }
     }
 
     public void viewMyTickets(User user) {
         try {
-            List<Ticket> myTickets = new ArrayList<>();
-            for (Ticket ticket : getAllTickets()) {
-                if (ticket.getUserEmail().equalsIgnoreCase(user.getEmail())) {
-                    myTickets.add(ticket);
-                }
-            }
+            List<Ticket> myTickets = bookingService.ticketsOf(user.getEmail());
 
             if (myTickets.isEmpty()) {
                 System.out.println(ConsoleColors.YELLOW + "You have not booked any tickets yet." + ConsoleColors.RESET);
@@ -228,43 +163,28 @@ public class TicketDAO {
         }
     }
 
-    public void checkPNRStatus() {
+    public void checkPNRStatus(User user) {
         try {
             System.out.print("Enter PNR to check status: ");
             String pnr = scanner.nextLine().trim();
 
-            if(!PNR_PATTERN.matcher(pnr).matches()) {
+            if(!BookingService.isValidPnr(pnr)) {
                 System.out.println(ConsoleColors.RED + "Invalid PNR format! PNR should be in format PNR12345" + ConsoleColors.RESET);
                 return;
             }
 
-            Ticket foundTicket = null;
-            for (Ticket ticket : getAllTickets()) {
-                if (ticket.getPnr().equalsIgnoreCase(pnr)) {
-                    foundTicket = ticket;
+            PnrStatus status = bookingService.status(pnr, user.getEmail());
+            switch (status.state()) {
+                case CONFIRMED:
+                    System.out.println(ConsoleColors.GREEN + "\n--- PNR Status: CONFIRMED ---" + ConsoleColors.RESET);
+                    printTicketDetails(status.ticket());
                     break;
-                }
-            }
-
-            if (foundTicket != null) {
-                System.out.println(ConsoleColors.GREEN + "\n--- PNR Status: CONFIRMED ---" + ConsoleColors.RESET);
-                printTicketDetails(foundTicket);
-            } else {
-                // Check waitlist
-                List<String> waitlist = FileHelper.readFile(waitlistFile);
-                boolean onWaitlist = false;
-                for (String entry : waitlist) {
-                    // Waitlist entry format: userEmail,trainId,pname,page,travelClass
-                    // We don't store PNR in waitlist, so can't directly check PNR.
-                    // This is a limitation based on current waitlist file format.
-                    // A real system would have unique waitlist IDs.
-                }
-
-                if (onWaitlist) {
-                    System.out.println(ConsoleColors.YELLOW + "PNR: " + pnr + " is currently on waitlist (Status: PENDING)." + ConsoleColors.RESET);
-                } else {
+                case WAITLISTED:
+                    System.out.println(ConsoleColors.YELLOW + "PNR: " + pnr + " is currently on waitlist for " + status.waitlistEntry().getTrainId()
+                            + " (Status: PENDING, Position: " + status.waitlistPosition() + ")." + ConsoleColors.RESET);
+                    break;
+                default:
                     System.out.println(ConsoleColors.RED + "PNR not found. It might be invalid, cancelled, or never existed." + ConsoleColors.RESET);
-                }
             }
         } catch (Exception e) {
             System.out.println(ConsoleColors.RED + "Error checking PNR status: " + e.getMessage() + ConsoleColors.RESET);
@@ -272,24 +192,12 @@ public class TicketDAO {
     }
 
     public List<Ticket> getAllTickets() {
-        List<Ticket> tickets = new ArrayList<>();
         try {
-            List<String> lines = FileHelper.readFile(ticketFile);
-            for (String line : lines) {
-                try {
-                    String[] data = line.split(",");
-                    if (data.length == 6) {
-                        tickets.add(new Ticket(data[0], data[1], data[2], data[3], 
-                                 Integer.parseInt(data[4]), data[5]));
-                    }
-                } catch (Exception e) {
-                    System.out.println(ConsoleColors.RED + "Skipping corrupted ticket entry: " + line + ConsoleColors.RESET);
-                }
-            }
+            return bookingService.allTickets();
         } catch (Exception e) {
             System.out.println(ConsoleColors.RED + "Error reading tickets: " + e.getMessage() + ConsoleColors.RESET);
+            return new ArrayList<>();
         }
-        return tickets;
     }
 
     public void viewAllTickets() {
@@ -312,38 +220,40 @@ public class TicketDAO {
     public void generateAdminReport() {
         try {
             System.out.println(ConsoleColors.CYAN + "\n--- Admin Report ---" + ConsoleColors.RESET);
-            List<Train> trains = trainDAO.getAllTrains();
-            List<Ticket> tickets = getAllTickets();
-            List<String> waitlist = FileHelper.readFile(waitlistFile);
+            AdminReport report = bookingService.report();
 
-            System.out.println("\nTotal Trains: " + trains.size());
-            System.out.println("Total Booked Tickets: " + tickets.size());
-            System.out.println("Current Waitlist Entries: " + waitlist.size());
+            System.out.println("\nTotal Trains: " + report.totalTrains());
+            System.out.println("Total Booked Tickets: " + report.totalTickets());
+            System.out.println("Current Waitlist Entries: " + report.waitlistEntries());
 
             System.out.println("\n--- Train Occupancy ---");
-            Map<String, Integer> bookedSeatsPerTrain = new HashMap<>();
-            for (Ticket ticket : tickets) {
-                bookedSeatsPerTrain.put(ticket.getTrainId(), 
-                                        bookedSeatsPerTrain.getOrDefault(ticket.getTrainId(), 0) + 1);
-            }
-
-            for (Train train : trains) {
-                int booked = bookedSeatsPerTrain.getOrDefault(train.getTrainId(), 0);
+            for (AdminReport.Occupancy occupancy : report.occupancy()) {
+                Train train = occupancy.train();
+                int booked = occupancy.booked();
                 System.out.printf("Train %s (%s): Booked Seats: %d/%d (Available: %d)%n",
                                   train.getTrainId(), train.getName(), booked, 
                                   (booked + train.getSeats()), train.getSeats());
             }
 
             System.out.println("\n--- Top 5 Most Booked Trains ---");
-            bookedSeatsPerTrain.entrySet().stream()
-                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-                .limit(5)
-                .forEach(entry -> {
-                    Train train = trainDAO.getTrainById(entry.getKey());
-                    if (train != null) {
-                        System.out.printf("%s (%s): %d tickets%n", train.getName(), train.getTrainId(), entry.getValue());
-                    }
-                });
+            for (AdminReport.Occupancy occupancy : report.mostBooked()) {
+                System.out.printf("%s (%s): %d tickets%n", occupancy.train().getName(), occupancy.train().getTrainId(), occupancy.booked());
+            }
+
+            System.out.println("\n--- Train Lock Contention ---");
+            Map<String, StripedLockManager.KeyStats> lockStats = report.lockStats();
+            if (lockStats.isEmpty()) {
+                System.out.println("No bookings or cancellations since startup.");
+            }
+            for (Map.Entry<String, StripedLockManager.KeyStats> entry : lockStats.entrySet()) {
+                StripedLockManager.KeyStats stats = entry.getValue();
+                long acquisitions = Math.max(stats.getAcquisitions(), 1);
+                System.out.printf("%s: %d locks, %d contended, avg wait %.1f us, avg hold %.1f us, max hold %.1f us%n",
+                                  entry.getKey(), stats.getAcquisitions(), stats.getContended(),
+                                  stats.getWaitNanos() / 1000.0 / acquisitions,
+                                  stats.getHoldNanos() / 1000.0 / acquisitions,
+                                  stats.getMaxHoldNanos() / 1000.0);
+            }
 
             System.out.println(ConsoleColors.CYAN + "--------------------" + ConsoleColors.RESET);
 
@@ -352,20 +262,6 @@ public class TicketDAO {
         }
     }
 
-    private String generatePNR() {
-        Random rand = new Random();
-        String pnr;
-        Set<String> existingPnrs = new HashSet<>();
-        for (Ticket t : getAllTickets()) {
-            existingPnrs.add(t.getPnr());
-        }
-
-        do {
-            pnr = "PNR" + String.format("%05d", rand.nextInt(100000));
-        } while (existingPnrs.contains(pnr));
-        return pnr;
-    }
-
     private void printTicketReceipt(Ticket ticket, Train train) {
         System.out.println(ConsoleColors.CYAN + "\n=====================" + ConsoleColors.RESET);
         System.out.println(ConsoleColors.CYAN + "    TICKET RECEIPT" + ConsoleColors.RESET);
@@ -382,7 +278,7 @@ public class TicketDAO {
     }
 
     private void printTicketDetails(Ticket ticket) {
-        Train train = trainDAO.getTrainById(ticket.getTrainId());
+        Train train = trainService.findTrain(ticket.getTrainId());
         String trainInfo = (train != null) ? train.getName() + " (" + ticket.getTrainId() + ")" : ticket.getTrainId();
         
         System.out.println(ConsoleColors.BLUE + "PNR: " + ticket.getPnr() + ConsoleColors.RESET);
@@ -0,0 +1,451 @@
+// TicketStore.java
+package dao;
+
+import model.Ticket;
+import util.AppendService;
+import util.ConsoleColors;
+import util.FileHelper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ticket storage split into one segment file per train under data/tickets/.
+ * Each segment is an append-only journal: a booking appends the ticket CSV and
+ * a cancellation appends a tombstone line, so every mutation is a single append.
+ * Readers fold the journal; a background compactor rewrites a segment with only
+ * its live tickets once tombstones make up too much of it.
+ *
+ * A PnrIndex maps every live PNR to its segment and byte offset, so status
+ * checks and cancellations read exactly one record.
+ */
+public class TicketStore {
+    private static final String LEGACY_TICKET_FILE = "data/tickets.txt";
+    private static final String LEGACY_BACKUP_FILE = "data/backup/tickets.txt";
+    private static final String SHARD_DIR = "data/tickets";
+    private static final String MANIFEST_FILE = SHARD_DIR + "/manifest.txt";
+    private static final String INDEX_FILE = SHARD_DIR + "/pnr.idx";
+    private static final String TOMBSTONE_PREFIX = "CANCELLED,";
+    private static final int SEPARATOR_LENGTH = System.lineSeparator().getBytes(FileHelper.CHARSET).length;
+    private static final double COMPACTION_RATIO = 0.25;
+    private static final int COMPACTION_MIN_LINES = 64;
+    private static TicketStore instance;
+
+    private final Set<String> shards = ConcurrentHashMap.newKeySet();
+    private final Map<String, ReentrantLock> shardLocks = new ConcurrentHashMap<>();
+    private final ReentrantLock manifestLock = new ReentrantLock();
+    private final Set<String> pendingCompactions = ConcurrentHashMap.newKeySet();
+    private final PnrIndex pnrIndex = new PnrIndex(INDEX_FILE);
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "ticket-compactor");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private TicketStore() {
+        if (!FileHelper.fileExists(MANIFEST_FILE)) {
+            migrateLegacyFile();
+        }
+        for (String line : FileHelper.readFile(MANIFEST_FILE)) {
+            shards.add(line.trim());
+        }
+        Map<String, Long> lengths = new HashMap<>();
+        for (String shard : shards) {
+            lengths.put(shard, new File(shardPath(shard)).length());
+        }
+        if (!pnrIndex.load(lengths)) {
+            rebuildIndex();
+        }
+    }
+
+    public static synchronized TicketStore getInstance() {
+        if (instance == null) {
+            instance = new TicketStore();
+        }
+        return instance;
+    }
+
+    public List<Ticket> getAll() {
+        List<Ticket> tickets = new ArrayList<>();
+        for (String trainId : sortedShards()) {
+            tickets.addAll(readShard(trainId));
+        }
+        return tickets;
+    }
+
+    public Ticket findByPnr(String pnr) {
+        PnrIndex.Location location = pnrIndex.get(pnr);
+        if (location == null) return null;
+        ReentrantLock lock = lockFor(location.getTrainId());
+        lock.lock();
+        try {
+            // Look again under the lock, compaction may have moved the record
+            location = pnrIndex.get(pnr);
+            return location == null ? null : readAt(location, pnr);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Only the user's own records are read, via the per-user PNR index
+    public List<Ticket> findByUser(String userEmail) {
+        List<Ticket> tickets = new ArrayList<>();
+        for (String pnr : pnrIndex.pnrsFor(userEmail)) {
+            Ticket ticket = findByPnr(pnr);
+            if (ticket != null) {
+                tickets.add(ticket);
+            }
+        }
+        return tickets;
+    }
+
+    public boolean containsPnr(String pnr) {
+        return pnrIndex.contains(pnr);
+    }
+
+    public void append(Ticket ticket) {
+        String shard = ticket.getTrainId();
+        registerShard(shard);
+        ReentrantLock lock = lockFor(shard);
+        lock.lock();
+        try {
+            String record = ticket.toCSV();
+            long offset = pnrIndex.stateOf(shard).length;
+            appendToSegment(shard, List.of(record));
+            index(shard, () -> pnrIndex.recordBooking(ticket.getPnr(), shard, offset, offset + lineLength(record),
+                    ticket.getUserEmail()), List.of(TOMBSTONE_PREFIX + ticket.getPnr()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends several tickets for the same train as one segment write and one
+     * index write.
+     */
+    public void appendAll(String trainId, List<Ticket> tickets) {
+        if (tickets.isEmpty()) return;
+        String shard = trainId.trim().toUpperCase();
+        registerShard(shard);
+        ReentrantLock lock = lockFor(shard);
+        lock.lock();
+        try {
+            List<String> records = new ArrayList<>(tickets.size());
+            List<String[]> bookings = new ArrayList<>(tickets.size());
+            long offset = pnrIndex.stateOf(shard).length;
+            for (Ticket ticket : tickets) {
+                if (!ticket.getTrainId().equals(shard)) {
+                    throw new IllegalArgumentException("Ticket " + ticket.getPnr() + " is not for train " + shard);
+                }
+                String record = ticket.toCSV();
+                long next = offset + lineLength(record);
+                records.add(record);
+                bookings.add(new String[]{ticket.getPnr(), shard, String.valueOf(offset), String.valueOf(next), ticket.getUserEmail()});
+                offset = next;
+            }
+            appendToSegment(shard, records);
+            List<String> tombstones = new ArrayList<>(tickets.size());
+            for (Ticket ticket : tickets) {
+                tombstones.add(TOMBSTONE_PREFIX + ticket.getPnr());
+            }
+            index(shard, () -> pnrIndex.recordBookings(bookings), tombstones);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Cancels the ticket with the given PNR if it belongs to userEmail by
+     * appending a tombstone to the segment that holds it.
+     */
+    public Ticket cancel(String pnr, String userEmail) {
+        PnrIndex.Location location = pnrIndex.get(pnr);
+        if (location == null) return null;
+        String shard = location.getTrainId();
+        ReentrantLock lock = lockFor(shard);
+        lock.lock();
+        try {
+            location = pnrIndex.get(pnr);
+            Ticket ticket = location == null ? null : readAt(location, pnr);
+            if (ticket == null || !ticket.getUserEmail().equalsIgnoreCase(userEmail)) {
+                return null;
+            }
+            String tombstone = TOMBSTONE_PREFIX + ticket.getPnr();
+            long length = pnrIndex.stateOf(shard).length;
+            appendToSegment(shard, List.of(tombstone));
+            index(shard, () -> pnrIndex.recordCancellation(ticket.getPnr(), shard, length + lineLength(tombstone)),
+                    List.of(ticket.toCSV()));
+            scheduleCompactionIfNeeded(shard);
+            return ticket;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends journal lines with one write. The index offsets assume the
+     * write landed, so a failure is thrown before anything is indexed.
+     */
+    private static void appendToSegment(String shard, List<String> lines) {
+        try {
+            FileHelper.appendLinesOrThrow(shardPath(shard), lines);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write ticket segment " + shard, e);
+        }
+    }
+
+    /**
+     * Runs an index update for lines already in the journal. If the index
+     * cannot be written, the undo lines take the journal back to what the
+     * caller will be told (no booking, or no cancellation) and the segment's
+     * index entries are reloaded from the journal before the error is rethrown.
+     */
+    private void index(String shard, Runnable update, List<String> undo) {
+        try {
+            update.run();
+        } catch (RuntimeException e) {
+            try {
+                FileHelper.appendLinesOrThrow(shardPath(shard), undo);
+            } catch (IOException undoFailure) {
+                e.addSuppressed(undoFailure);
+            }
+            Map<String, PnrIndex.Location> live = new LinkedHashMap<>();
+            pnrIndex.resync(shard, live, foldSegment(shard, live));
+            throw e;
+        }
+    }
+
+    // Folds the segment journal into its live tickets, in booking order
+    private List<Ticket> readShard(String shard) {
+        ReentrantLock lock = lockFor(shard);
+        lock.lock();
+        try {
+            Map<String, Ticket> live = new LinkedHashMap<>();
+            FileHelper.lines(shardPath(shard)).forEach(line -> {
+                if (line.startsWith(TOMBSTONE_PREFIX)) {
+                    live.remove(line.substring(TOMBSTONE_PREFIX.length()).trim().toUpperCase());
+                    return;
+                }
+                Ticket ticket = parse(line);
+                if (ticket != null) {
+                    live.put(ticket.getPnr(), ticket);
+                }
+            });
+            return new ArrayList<>(live.values());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Reads the single journal line at the indexed offset
+    private Ticket readAt(PnrIndex.Location location, String pnr) {
+        String path = shardPath(location.getTrainId());
+        try {
+            AppendService.getInstance().flush(path);
+            try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+                ByteBuffer buffer = ByteBuffer.allocate(256);
+                LineBuffer line = new LineBuffer();
+                long position = location.getOffset();
+                while (!line.complete) {
+                    buffer.clear();
+                    int read = channel.read(buffer, position);
+                    if (read <= 0) break;
+                    line.add(buffer.array(), read);
+                    position += read;
+                }
+                Ticket ticket = parse(line.toString().trim());
+                return ticket != null && ticket.getPnr().equalsIgnoreCase(pnr.trim()) ? ticket : null;
+            }
+        } catch (IOException e) {
+            System.out.println(ConsoleColors.RED + "Error reading ticket " + pnr + ": " + e.getMessage() + ConsoleColors.RESET);
+            return null;
+        }
+    }
+
+    // Collects bytes up to the first newline, so multi-byte characters decode intact
+    private static class LineBuffer {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private boolean complete;
+
+        void add(byte[] chunk, int length) {
+            for (int i = 0; i < length; i++) {
+                if (chunk[i] == '\n') {
+                    complete = true;
+                    return;
+                }
+                bytes.write(chunk[i]);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return new String(bytes.toByteArray(), FileHelper.CHARSET);
+        }
+    }
+
+    private void scheduleCompactionIfNeeded(String shard) {
+        PnrIndex.SegmentState state = pnrIndex.stateOf(shard);
+        int total = state.records + state.tombstones;
+        boolean needed = total >= COMPACTION_MIN_LINES && state.tombstones >= total * COMPACTION_RATIO;
+        if (!needed || !pendingCompactions.add(shard)) {
+            return;
+        }
+        compactor.execute(() -> {
+            try {
+                compact(shard);
+            } catch (Exception e) {
+                System.err.println("Error compacting ticket segment " + shard + ": " + e.getMessage());
+            } finally {
+                pendingCompactions.remove(shard);
+            }
+        });
+    }
+
+    private void compact(String shard) {
+        ReentrantLock lock = lockFor(shard);
+        lock.lock();
+        try {
+            List<String> lines = new ArrayList<>();
+            Map<String, PnrIndex.Location> moved = new LinkedHashMap<>();
+            long position = 0;
+            for (Ticket t : readShard(shard)) {
+                String record = t.toCSV();
+                lines.add(record);
+                moved.put(t.getPnr(), new PnrIndex.Location(shard, position, t.getUserEmail()));
+                position += lineLength(record);
+            }
+            try {
+                FileHelper.overwriteOrThrow(shardPath(shard), lines);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not rewrite ticket segment " + shard, e);
+            }
+            long length = position;
+            index(shard, () -> pnrIndex.replaceSegment(shard, moved, length), List.of());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Folds every segment with byte offsets and replaces the PNR index
+    private void rebuildIndex() {
+        Map<String, PnrIndex.Location> allLive = new LinkedHashMap<>();
+        Map<String, PnrIndex.SegmentState> states = new HashMap<>();
+        for (String shard : sortedShards()) {
+            states.put(shard, foldSegment(shard, allLive));
+        }
+        pnrIndex.rebuild(allLive, states);
+    }
+
+    // Adds the segment's live PNRs with their byte offsets to live and returns its counters
+    private PnrIndex.SegmentState foldSegment(String shard, Map<String, PnrIndex.Location> live) {
+        ReentrantLock lock = lockFor(shard);
+        lock.lock();
+        try {
+            Map<String, PnrIndex.Location> segmentLive = new LinkedHashMap<>();
+            PnrIndex.SegmentState state = new PnrIndex.SegmentState(0, 0, 0);
+            byte[] bytes;
+            try {
+                AppendService.getInstance().flush(shardPath(shard));
+                bytes = Files.readAllBytes(Paths.get(shardPath(shard)));
+            } catch (IOException e) {
+                bytes = new byte[0];
+            }
+            int lineStart = 0;
+            while (lineStart < bytes.length) {
+                int lineEnd = lineStart;
+                while (lineEnd < bytes.length && bytes[lineEnd] != '\n') lineEnd++;
+                String line = new String(bytes, lineStart, lineEnd - lineStart, FileHelper.CHARSET).trim();
+                if (line.startsWith(TOMBSTONE_PREFIX)) {
+                    segmentLive.remove(line.substring(TOMBSTONE_PREFIX.length()).trim().toUpperCase());
+                    state.tombstones++;
+                } else if (!line.isEmpty()) {
+                    state.records++;
+                    Ticket ticket = parse(line);
+                    if (ticket != null) {
+                        segmentLive.put(ticket.getPnr(), new PnrIndex.Location(shard, lineStart, ticket.getUserEmail()));
+                    }
+                }
+                lineStart = lineEnd + 1;
+            }
+            state.length = bytes.length;
+            live.putAll(segmentLive);
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock lockFor(String shard) {
+        return shardLocks.computeIfAbsent(shard, k -> new ReentrantLock());
+    }
+
+    private void registerShard(String shard) {
+        manifestLock.lock();
+        try {
+            if (shards.add(shard)) {
+                FileHelper.appendToFile(MANIFEST_FILE, shard);
+            }
+        } finally {
+            manifestLock.unlock();
+        }
+    }
+
+    private List<String> sortedShards() {
+        List<String> sorted = new ArrayList<>(shards);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    private static String shardPath(String shard) {
+        return SHARD_DIR + "/" + shard + ".txt";
+    }
+
+    private static long lineLength(String line) {
+        return line.getBytes(FileHelper.CHARSET).length + SEPARATOR_LENGTH;
+    }
+
+    static Ticket parse(String line) {
+        try {
+            String[] data = line.split(",");
+            if (data.length == 6) {
+                return new Ticket(data[0], data[1], data[2], data[3],
+                        Integer.parseInt(data[4]), data[5]);
+            }
+        } catch (Exception e) {
+            System.out.println(ConsoleColors.RED + "Skipping corrupted ticket entry: " + line + ConsoleColors.RESET);
+        }
+        return null;
+    }
+
+    // Splits the old single tickets.txt into per-train segments on first start
+    private void migrateLegacyFile() {
+        Map<String, List<String>> byTrain = new TreeMap<>();
+        if (FileHelper.fileExists(LEGACY_TICKET_FILE)) {
+            for (String line : FileHelper.readFile(LEGACY_TICKET_FILE)) {
+                Ticket ticket = parse(line);
+                if (ticket != null) {
+                    byTrain.computeIfAbsent(ticket.getTrainId(), k -> new ArrayList<>()).add(ticket.toCSV());
+                }
+            }
+        }
+        for (Map.Entry<String, List<String>> entry : byTrain.entrySet()) {
+            FileHelper.overwriteFile(shardPath(entry.getKey()), entry.getValue());
+        }
+        FileHelper.overwriteFile(MANIFEST_FILE, new ArrayList<>(byTrain.keySet()));
+        if (FileHelper.backupFile(LEGACY_TICKET_FILE, LEGACY_BACKUP_FILE)) {
+            new File(LEGACY_TICKET_FILE).delete();
+        }
+    }
+}
@@ -2,23 +2,30 @@
 package dao;
 
 import model.Train;
+import service.TrainModification;
+import service.TrainQuery;
+import service.TrainService;
+import service.TrainSpec;
+import service.TrainUpdate;
 import util.ConsoleColors;
-import util.FileHelper;
-import events.EventManager;
+import util.RotatingLog;
 import events.RailwayEvent;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.regex.Pattern;
 
+// Console prompts and output for trains; TrainService does the work
 public class TrainDAO {
-    private final String trainFile = "data/trains.txt";
+    private final TrainService trainService = TrainService.getInstance();
     private final Scanner scanner = new Scanner(System.in);
     private static final Pattern TIME_PATTERN = Pattern.compile("^([01]?[0-9]|2[0-3]):[0-5][0-9]$");
     private static final Pattern TRAIN_ID_PATTERN = Pattern.compile("^TRAIN\\d{3}$");
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter DEPARTURE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd H:mm");
 
     public void addTrain() {
         try {
@@ -33,7 +40,7 @@ public class TrainDAO {
                     System.out.println(ConsoleColors.RED + "Invalid format! Must be TRAIN followed by 3 digits (e.g. TRAIN001)" + ConsoleColors.RESET);
                     continue;
                 }
-                if(getTrainById(id) != null) {
+                if(trainService.findTrain(id) != null) {
                     System.out.println(ConsoleColors.RED + "Train ID already exists!" + ConsoleColors.RESET);
                     continue;
                 }
@@ -132,38 +139,21 @@ public class TrainDAO {
                 }
             }
 
-            Train train = new Train(id, name, src, dest, date, time, seats, fare);
-            FileHelper.appendToFile(trainFile, train.toString());
+            trainService.addTrain(new TrainSpec(id, name, src, dest, date, time, seats, fare));
             System.out.println(ConsoleColors.GREEN + "Train added successfully!" + ConsoleColors.RESET);
 
-            // Dispatch TRAIN_ADDED event
-            EventManager.getInstance().dispatchEvent(RailwayEvent.TRAIN_ADDED, train);
-
         } catch (Exception e) {
             System.out.println(ConsoleColors.RED + "Error adding train: " + e.getMessage() + ConsoleColors.RESET);
         }
     }
 
     public List<Train> getAllTrains() {
-        List<Train> trains = new ArrayList<>();
         try {
-            List<String> lines = FileHelper.readFile(trainFile);
-            for (String line : lines) {
-                try {
-                    String[] data = line.split(",");
-                    if (data.length == 8) {
-                        trains.add(new Train(data[0], data[1], data[2], data[3], 
-                                 data[4], data[5], Integer.parseInt(data[6]), 
-                                 Double.parseDouble(data[7])));
-                    }
-                } catch (Exception e) {
-                    System.out.println(ConsoleColors.RED + "Skipping corrupted train entry: " + line + ConsoleColors.RESET);
-                }
-            }
+            return trainService.allTrains();
         } catch (Exception e) {
             System.out.println(ConsoleColors.RED + "Error reading trains: " + e.getMessage() + ConsoleColors.RESET);
+            return new ArrayList<>();
         }
-        return trains;
     }
 
     public void viewTrains() {
@@ -184,27 +174,19 @@ public class TrainDAO {
     }
 
     public Train getTrainById(String trainId) {
-        for (Train train : getAllTrains()) {
-            if (train.getTrainId().equalsIgnoreCase(trainId)) {
-                return train;
-            }
-        }
-        return null;
+        return trainService.findTrain(trainId);
+    }
+
+    public List<Train> getTrainsBetween(LocalDate from, LocalDate to) {
+        return trainService.search(new TrainQuery.ByDate(from, to));
+    }
+
+    public List<Train> getNextDepartures(LocalDateTime after, int limit) {
+        return trainService.search(new TrainQuery.NextDepartures(after, limit));
     }
 
     public void updateTrainSeats(String trainId, int newSeats) {
-        List<Train> trains = getAllTrains();
-        boolean updated = false;
-        for (int i = 0; i < trains.size(); i++) {
-            if (trains.get(i).getTrainId().equalsIgnoreCase(trainId)) {
-                trains.get(i).setSeats(newSeats);
-                updated = true;
-                break;
-            }
-        }
-        if (updated) {
-            saveTrains(trains);
-        }
+        trainService.updateTrainSeats(trainId, newSeats);
     }
 
     public void modifyTrain() {
@@ -226,12 +208,11 @@ public class TrainDAO {
 
             System.out.print("New Name (" + trainToModify.getName() + "): ");
             String newName = scanner.nextLine().trim();
-            if (!newName.isEmpty()) {
-                if(newName.length() > 100) {
-                    System.out.println(ConsoleColors.RED + "Name too long! Max 100 characters. Keeping old name." + ConsoleColors.RESET);
-                } else {
-                    trainToModify.setTrainName(newName);
-                }
+            if (newName.isEmpty()) {
+                newName = null;
+            } else if (newName.length() > 100) {
+                System.out.println(ConsoleColors.RED + "Name too long! Max 100 characters. Keeping old name." + ConsoleColors.RESET);
+                newName = null;
             }
 
             String newSrc = "";
@@ -251,44 +232,44 @@ public class TrainDAO {
                      System.out.println(ConsoleColors.RED + "Source and destination cannot be the same! Please re-enter." + ConsoleColors.RESET);
                 }
                  else {
-                    if (!newSrc.isEmpty()) trainToModify.setSource(newSrc);
-                    if (!newDest.isEmpty()) trainToModify.setDestination(newDest);
                     stationChangeValid = true;
                 }
             }
 
             System.out.print("New Date (YYYY-MM-DD) (" + trainToModify.getDate() + "): ");
             String newDate = scanner.nextLine().trim();
-            if (!newDate.isEmpty()) {
+            if (newDate.isEmpty()) {
+                newDate = null;
+            } else {
                 try {
                     LocalDate parsedDate = LocalDate.parse(newDate, DATE_FORMATTER);
                     if(parsedDate.isBefore(LocalDate.now())) {
                         System.out.println(ConsoleColors.RED + "Date cannot be in the past! Keeping old date." + ConsoleColors.RESET);
-                    } else {
-                        trainToModify.setDate(newDate);
+                        newDate = null;
                     }
                 } catch (DateTimeParseException e) {
                     System.out.println(ConsoleColors.RED + "Invalid date format! Keeping old date." + ConsoleColors.RESET);
+                    newDate = null;
                 }
             }
 
             System.out.print("New Departure Time (HH:MM) (" + trainToModify.getTime() + "): ");
             String newTime = scanner.nextLine().trim();
-            if (!newTime.isEmpty()) {
-                if(!TIME_PATTERN.matcher(newTime).matches()) {
-                    System.out.println(ConsoleColors.RED + "Invalid time format! Keeping old time." + ConsoleColors.RESET);
-                } else {
-                    trainToModify.setTime(newTime);
-                }
+            if (newTime.isEmpty()) {
+                newTime = null;
+            } else if(!TIME_PATTERN.matcher(newTime).matches()) {
+                System.out.println(ConsoleColors.RED + "Invalid time format! Keeping old time." + ConsoleColors.RESET);
+                newTime = null;
             }
 
+            Integer newSeats = null;
             System.out.print("New Seats Available (" + trainToModify.getSeats() + "): ");
             String newSeatsStr = scanner.nextLine().trim();
             if (!newSeatsStr.isEmpty()) {
                 try {
-                    int newSeats = Integer.parseInt(newSeatsStr);
-                    if (newSeats > 0 && newSeats <= 1000) {
-                        trainToModify.setSeats(newSeats);
+                    int seats = Integer.parseInt(newSeatsStr);
+                    if (seats > 0 && seats <= 1000) {
+                        newSeats = seats;
                     } else {
                         System.out.println(ConsoleColors.RED + "Invalid seat count (1-1000)! Keeping old seat count." + ConsoleColors.RESET);
                     }
@@ -297,13 +278,14 @@ public class TrainDAO {
                 }
             }
 
+            Double newFare = null;
             System.out.print("New Fare (" + trainToModify.getFare() + "): ");
             String newFareStr = scanner.nextLine().trim();
             if (!newFareStr.isEmpty()) {
                 try {
-                    double newFare = Double.parseDouble(newFareStr);
-                    if (newFare > 0 && newFare <= 100000) {
-                        trainToModify.setFare(newFare);
+                    double fare = Double.parseDouble(newFareStr);
+                    if (fare > 0 && fare <= 100000) {
+                        newFare = fare;
                     } else {
                         System.out.println(ConsoleColors.RED + "Invalid fare amount (1-100000)! Keeping old fare." + ConsoleColors.RESET);
                     }
@@ -312,19 +294,18 @@ public class TrainDAO {
                 }
             }
 
-            List<Train> trains = getAllTrains();
-            for (int i = 0; i < trains.size(); i++) {
-                if (trains.get(i).getTrainId().equalsIgnoreCase(id)) {
-                    trains.set(i, trainToModify);
-                    break;
-                }
+            TrainModification result = trainService.modifyTrain(id, new TrainUpdate(newName,
+                    newSrc.isEmpty() ? null : newSrc, newDest.isEmpty() ? null : newDest, newDate, newTime, newSeats, newFare));
+            if (result == null) {
+                System.out.println(ConsoleColors.RED + "Train not found." + ConsoleColors.RESET);
+                return;
+            }
+            int promoted = result.promoted().size();
+            if (promoted > 0) {
+                System.out.println(ConsoleColors.GREEN + promoted + " waitlisted passenger(s) confirmed on " + id + "." + ConsoleColors.RESET);
             }
-            saveTrains(trains);
             System.out.println(ConsoleColors.GREEN + "Train modified successfully!" + ConsoleColors.RESET);
 
-            // Dispatch TRAIN_MODIFIED event
-            EventManager.getInstance().dispatchEvent(RailwayEvent.TRAIN_MODIFIED, trainToModify);
-
         } catch (Exception e) {
             System.out.println(ConsoleColors.RED + "Error modifying train: " + e.getMessage() + ConsoleColors.RESET);
         }
@@ -350,12 +331,8 @@ public class TrainDAO {
                 return;
             }
 
-            List<Train> trains = getAllTrains();
-            if (trains.removeIf(train -> train.getTrainId().equalsIgnoreCase(id))) {
-                saveTrains(trains);
+            if (trainService.deleteTrain(id)) {
                 System.out.println(ConsoleColors.GREEN + "Train " + id + " deleted successfully!" + ConsoleColors.RESET);
-                // Dispatch TRAIN_DELETED event
-                EventManager.getInstance().dispatchEvent(RailwayEvent.TRAIN_DELETED, id);
             } else {
                 System.out.println(ConsoleColors.RED + "Train not found." + ConsoleColors.RESET);
             }
@@ -370,7 +347,8 @@ public class TrainDAO {
             System.out.println("1. By Source & Destination");
             System.out.println("2. By Date");
             System.out.println("3. By Train ID or Name");
-            System.out.println("4. Back to Main Menu");
+            System.out.println("4. Next Departures");
+            System.out.println("5. Back to Main Menu");
             System.out.print("Enter choice: ");
             int choice;
             try {
@@ -380,8 +358,7 @@ public class TrainDAO {
                 return;
             }
 
-            List<Train> trains = getAllTrains();
-            if (trains.isEmpty()) {
+            if (!trainService.hasTrains()) {
                 System.out.println(ConsoleColors.YELLOW + "No trains available to search." + ConsoleColors.RESET);
                 return;
             }
@@ -394,36 +371,46 @@ public class TrainDAO {
                     System.out.print("Destination: ");
                     String dest = scanner.nextLine().trim();
                     System.out.println("\n--- Search Results ---");
-                    for (Train t : trains) {
-                        if (t.getSource().equalsIgnoreCase(src) && t.getDestination().equalsIgnoreCase(dest)) {
-                            printTrainDetails(t);
-                            found = true;
-                        }
+                    for (Train t : trainService.search(new TrainQuery.ByRoute(src, dest))) {
+                        printTrainDetails(t);
+                        found = true;
                     }
                     break;
                 case 2:
                     System.out.print("Date (YYYY-MM-DD): ");
-                    String date = scanner.nextLine().trim();
+                    LocalDate from = LocalDate.parse(scanner.nextLine().trim(), DATE_FORMATTER);
+                    System.out.print("Until Date (YYYY-MM-DD, blank for same day): ");
+                    String until = scanner.nextLine().trim();
+                    LocalDate to = until.isEmpty() ? from : LocalDate.parse(until, DATE_FORMATTER);
                     System.out.println("\n--- Search Results ---");
-                    for (Train t : trains) {
-                        if (t.getDate().equalsIgnoreCase(date)) {
-                            printTrainDetails(t);
-                            found = true;
-                        }
+                    for (Train t : getTrainsBetween(from, to)) {
+                        printTrainDetails(t);
+                        found = true;
                     }
                     break;
                 case 3:
                     System.out.print("Enter Train ID or Name: ");
                     String query = scanner.nextLine().trim();
                     System.out.println("\n--- Search Results ---");
-                    for (Train t : trains) {
-                        if (t.getTrainId().equalsIgnoreCase(query) || t.getName().toLowerCase().contains(query.toLowerCase())) {
-                            printTrainDetails(t);
-                            found = true;
-                        }
+                    for (Train t : trainService.search(new TrainQuery.ByIdOrName(query))) {
+                        printTrainDetails(t);
+                        found = true;
                     }
                     break;
                 case 4:
+                    System.out.print("Departing after (YYYY-MM-DD HH:MM, blank for now): ");
+                    String after = scanner.nextLine().trim();
+                    LocalDateTime moment = after.isEmpty() ? LocalDateTime.now()
+                            : LocalDateTime.parse(after, DEPARTURE_FORMATTER);
+                    System.out.print("How many: ");
+                    int limit = Integer.parseInt(scanner.nextLine().trim());
+                    System.out.println("\n--- Next Departures ---");
+                    for (Train t : getNextDepartures(moment, limit)) {
+                        printTrainSummary(t);
+                        found = true;
+                    }
+                    break;
+                case 5:
                     return;
                 default:
                     System.out.println(ConsoleColors.RED + "Invalid choice." + ConsoleColors.RESET);
@@ -506,15 +493,56 @@ public class TrainDAO {
         }
     }
 
-    private void saveTrains(List<Train> trains) {
+    public void queryAdminLog() {
         try {
-            List<String> lines = new ArrayList<>();
-            for(Train t : trains) {
-                lines.add(t.toString());
+            System.out.println("\n--- Query Admin Log ---");
+            System.out.print("From (YYYY-MM-DD HH:MM, blank for the beginning): ");
+            String fromText = scanner.nextLine().trim();
+            LocalDateTime from = fromText.isEmpty() ? null : LocalDateTime.parse(fromText, DEPARTURE_FORMATTER);
+            System.out.print("To (YYYY-MM-DD HH:MM, blank for now): ");
+            String toText = scanner.nextLine().trim();
+            // Minute precision, so the end minute is included in full
+            LocalDateTime to = toText.isEmpty() ? null : LocalDateTime.parse(toText, DEPARTURE_FORMATTER).plusSeconds(59);
+            System.out.print("Action (ADDED, MODIFIED, DELETED, blank for all): ");
+            String action = scanner.nextLine().trim().toUpperCase();
+            EnumSet<RailwayEvent> events;
+            switch (action) {
+                case "":
+                    events = null;
+                    break;
+                case "ADDED":
+                    events = EnumSet.of(RailwayEvent.TRAIN_ADDED);
+                    break;
+                case "MODIFIED":
+                    events = EnumSet.of(RailwayEvent.TRAIN_MODIFIED);
+                    break;
+                case "DELETED":
+                    events = EnumSet.of(RailwayEvent.TRAIN_DELETED);
+                    break;
+                default:
+                    System.out.println(ConsoleColors.RED + "Invalid action! Use ADDED, MODIFIED or DELETED." + ConsoleColors.RESET);
+                    return;
+            }
+            System.out.print("Train ID (blank for all): ");
+            String trainId = scanner.nextLine().trim().toUpperCase();
+
+            long start = System.nanoTime();
+            List<AdminLogQuery.Entry> entries = AdminLogQuery.getInstance().find(from, to, events, trainId);
+            long micros = (System.nanoTime() - start) / 1000;
+
+            if (entries.isEmpty()) {
+                System.out.println(ConsoleColors.YELLOW + "No admin actions match your criteria." + ConsoleColors.RESET);
+                return;
+            }
+            for (AdminLogQuery.Entry entry : entries) {
+                System.out.println(entry.timestamp().format(RotatingLog.TIMESTAMP_FORMAT) + " | " + entry.event()
+                        + " | " + entry.message());
             }
-            FileHelper.overwriteFile(trainFile, lines);
+            System.out.println(ConsoleColors.GREEN + entries.size() + " entries found in " + micros / 1000.0 + " ms." + ConsoleColors.RESET);
+        } catch (DateTimeParseException e) {
+            System.out.println(ConsoleColors.RED + "Invalid date format! Please use YYYY-MM-DD HH:MM." + ConsoleColors.RESET);
         } catch (Exception e) {
-            System.out.println(ConsoleColors.RED + "Error saving trains: " + e.getMessage() + ConsoleColors.RESET);
+            System.out.println(ConsoleColors.RED + "Error querying admin log: " + e.getMessage() + ConsoleColors.RESET);
         }
     }
 
@@ -0,0 +1,412 @@
+// TrainRepository.java
+package dao;
+
+import model.Train;
+import util.AppendService;
+import util.ConsoleColors;
+import util.FileHelper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Resident copy of data/trains.txt keyed by train ID.
+ * The file is parsed once and kept in sync by the repository's own writes;
+ * it is only reparsed when its modification time or size changes underneath us.
+ * Reads and seat updates look at the file at most once per RECHECK_INTERVAL_NANOS,
+ * with a single stat; adding, editing or removing a train always checks first.
+ *
+ * The seats column is written as a fixed-width, zero-padded field and the byte
+ * offset of that field is indexed per train, so a seat count change is a single
+ * positioned write instead of a rewrite of the whole timetable.
+ *
+ * Secondary indexes (route, departure, name) are kept with the map in one Timetable. A
+ * reload, and every add, edit or removal of a train, builds a new Timetable off to the
+ * side and publishes it with one volatile write, so lock-free readers never see a
+ * half-loaded timetable or miss a train while it is being edited.
+ */
+public class TrainRepository {
+    private static final String TRAIN_FILE = "data/trains.txt";
+    private static final int SEATS_FIELD = 6;
+    private static final int SEATS_WIDTH = 4;
+    private static final long RECHECK_INTERVAL_NANOS = 1_000_000_000L;
+    private static TrainRepository instance;
+
+    // One parsed copy of the file with its indexes; writers build a new one and swap it in whole
+    private static final class Timetable {
+        private final ConcurrentHashMap<String, Train> trains = new ConcurrentHashMap<>();
+        private final Map<String, Long> seatOffsets = new ConcurrentHashMap<>();
+        private final RouteIndex routeIndex = new RouteIndex();
+        private final DepartureIndex departureIndex = new DepartureIndex();
+        private final NameIndex nameIndex = new NameIndex();
+
+        private void put(Train train) {
+            Train previous = trains.put(train.getTrainId(), train);
+            if (previous != null) {
+                routeIndex.remove(previous);
+                departureIndex.remove(previous);
+                nameIndex.remove(previous);
+            }
+            routeIndex.add(train);
+            departureIndex.add(train);
+            nameIndex.add(train);
+        }
+
+        private Train remove(String trainId) {
+            Train previous = trains.remove(trainId);
+            if (previous != null) {
+                routeIndex.remove(previous);
+                departureIndex.remove(previous);
+                nameIndex.remove(previous);
+            }
+            return previous;
+        }
+
+        // A private copy to apply a change to before it is published
+        private Timetable copy() {
+            Timetable copy = new Timetable();
+            for (Train train : trains.values()) {
+                copy.put(train);
+            }
+            copy.seatOffsets.putAll(seatOffsets);
+            return copy;
+        }
+
+        private List<Train> copiesOf(Collection<String> trainIds) {
+            List<Train> result = new ArrayList<>(trainIds.size());
+            for (String id : trainIds) {
+                Train train = trains.get(id);
+                if (train != null) {
+                    result.add(new Train(train));
+                }
+            }
+            return result;
+        }
+    }
+
+    private volatile Timetable timetable = new Timetable();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private FileChannel seatChannel;
+    private volatile long loadedModified = -1;
+    private volatile long loadedSize = -1;
+    private volatile long generation;
+    private volatile long nextCheck;
+
+    private TrainRepository() {
+    }
+
+    public static synchronized TrainRepository getInstance() {
+        if (instance == null) {
+            instance = new TrainRepository();
+        }
+        return instance;
+    }
+
+    public Train findById(String trainId) {
+        if (trainId == null) return null;
+        Train train = current().trains.get(trainId.trim().toUpperCase());
+        return train == null ? null : new Train(train);
+    }
+
+    public boolean exists(String trainId) {
+        if (trainId == null) return false;
+        return current().trains.containsKey(trainId.trim().toUpperCase());
+    }
+
+    public List<Train> findAll() {
+        Map<String, Train> trains = current().trains;
+        List<Train> result = new ArrayList<>(trains.size());
+        for (Train train : trains.values()) {
+            result.add(new Train(train));
+        }
+        result.sort(Comparator.comparing(Train::getTrainId));
+        return result;
+    }
+
+    public List<Train> findByRoute(String source, String destination) {
+        Timetable t = current();
+        return t.copiesOf(t.routeIndex.find(source, destination));
+    }
+
+    // Trains leaving between the two dates (inclusive), ordered by departure
+    public List<Train> findByDateRange(LocalDate from, LocalDate to) {
+        Timetable t = current();
+        return t.copiesOf(t.departureIndex.between(from, to));
+    }
+
+    // Bumped only when the timetable is (re)read from disk; the repository's own writes leave it alone.
+    // Cheap enough to call on every seat operation: the file is looked at no more than once an interval
+    public long generation() {
+        refreshIfChanged();
+        return generation;
+    }
+
+    public boolean isEmpty() {
+        return current().trains.isEmpty();
+    }
+
+    // Trains whose name contains the query, best matches first
+    public List<Train> searchByName(String query) {
+        Timetable t = current();
+        return t.copiesOf(t.nameIndex.search(query));
+    }
+
+    public List<Train> findNextDepartures(LocalDateTime after, int limit) {
+        Timetable t = current();
+        return t.copiesOf(t.departureIndex.after(after, limit));
+    }
+
+    public void add(Train train) {
+        writeLock.lock();
+        try {
+            checkForChanges();
+            String record = toRecord(train);
+            byte[] recordBytes = record.getBytes(FileHelper.CHARSET);
+            FileHelper.appendToFile(TRAIN_FILE, record);
+            try {
+                AppendService.getInstance().flush(TRAIN_FILE);
+            } catch (IOException e) {
+                System.out.println(ConsoleColors.RED + "Error saving train: " + e.getMessage() + ConsoleColors.RESET);
+            }
+            Timetable next = timetable.copy();
+            next.put(new Train(train));
+            long lineStart = new File(TRAIN_FILE).length() - recordBytes.length
+                    - System.lineSeparator().getBytes(FileHelper.CHARSET).length;
+            next.seatOffsets.put(train.getTrainId(), lineStart + seatsFieldOffset(recordBytes));
+            timetable = next;
+            stamp();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public boolean update(Train train) {
+        writeLock.lock();
+        try {
+            checkForChanges();
+            Timetable t = timetable;
+            if (!t.trains.containsKey(train.getTrainId())) return false;
+            Timetable next = t.copy();
+            next.put(new Train(train));
+            timetable = next;
+            persist();
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public boolean updateSeats(String trainId, int newSeats) {
+        writeLock.lock();
+        try {
+            Timetable t = current();
+            Train train = t.trains.get(trainId.trim().toUpperCase());
+            if (train == null) return false;
+            // Readers copy the stored Train without a lock, so it is replaced, never changed
+            train = new Train(train);
+            train.setSeats(newSeats);
+            t.trains.put(train.getTrainId(), train);
+            Long offset = t.seatOffsets.get(train.getTrainId());
+            if (offset != null && writeSeatsInPlace(offset, newSeats)) {
+                stamp();
+            } else {
+                persist();
+            }
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public boolean remove(String trainId) {
+        writeLock.lock();
+        try {
+            checkForChanges();
+            Timetable t = timetable;
+            String key = trainId.trim().toUpperCase();
+            if (!t.trains.containsKey(key)) return false;
+            Timetable next = t.copy();
+            next.remove(key);
+            timetable = next;
+            persist();
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private Timetable current() {
+        refreshIfChanged();
+        return timetable;
+    }
+
+    private void refreshIfChanged() {
+        long now = System.nanoTime();
+        if (loadedSize >= 0 && now - nextCheck < 0) return;
+        nextCheck = now + RECHECK_INTERVAL_NANOS;
+        checkForChanges();
+    }
+
+    private void checkForChanges() {
+        if (matchesLoaded(fileStamp())) return;
+        writeLock.lock();
+        try {
+            if (!matchesLoaded(fileStamp())) {
+                load();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private boolean matchesLoaded(long[] stamp) {
+        return stamp[0] == loadedModified && stamp[1] == loadedSize;
+    }
+
+    // Modification time and size from one stat; both 0 if the file is missing
+    private static long[] fileStamp() {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(Paths.get(TRAIN_FILE), BasicFileAttributes.class);
+            return new long[]{attributes.lastModifiedTime().toMillis(), attributes.size()};
+        } catch (IOException e) {
+            return new long[]{0, 0};
+        }
+    }
+
+    private void load() {
+        closeSeatChannel();
+        if (!FileHelper.fileExists(TRAIN_FILE)) {
+            FileHelper.readFile(TRAIN_FILE);
+        }
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(Paths.get(TRAIN_FILE));
+        } catch (IOException e) {
+            System.out.println(ConsoleColors.RED + "Error reading trains: " + e.getMessage() + ConsoleColors.RESET);
+            return;
+        }
+
+        Timetable loaded = new Timetable();
+        int lineStart = 0;
+        while (lineStart < bytes.length) {
+            int lineEnd = lineStart;
+            while (lineEnd < bytes.length && bytes[lineEnd] != '\n') lineEnd++;
+            int contentEnd = lineEnd > lineStart && bytes[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+            String line = new String(bytes, lineStart, contentEnd - lineStart, FileHelper.CHARSET);
+            if (!line.trim().isEmpty()) {
+                try {
+                    String[] data = line.split(",");
+                    if (data.length == 8) {
+                        Train train = new Train(data[0], data[1], data[2], data[3],
+                                data[4], data[5], Integer.parseInt(data[6]),
+                                Double.parseDouble(data[7]));
+                        loaded.put(train);
+                        if (data[6].length() == SEATS_WIDTH) {
+                            byte[] lineBytes = Arrays.copyOfRange(bytes, lineStart, contentEnd);
+                            loaded.seatOffsets.put(train.getTrainId(), (long) lineStart + seatsFieldOffset(lineBytes));
+                        }
+                    }
+                } catch (Exception e) {
+                    System.out.println(ConsoleColors.RED + "Skipping corrupted train entry: " + line + ConsoleColors.RESET);
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        timetable = loaded;
+        generation++;
+        stamp();
+    }
+
+    private void persist() {
+        closeSeatChannel();
+        List<String> lines = new ArrayList<>();
+        Map<String, Long> offsets = new HashMap<>();
+        long position = 0;
+        int separatorLength = System.lineSeparator().getBytes(FileHelper.CHARSET).length;
+        for (Train train : sortedTrains()) {
+            String record = toRecord(train);
+            byte[] recordBytes = record.getBytes(FileHelper.CHARSET);
+            offsets.put(train.getTrainId(), position + seatsFieldOffset(recordBytes));
+            position += recordBytes.length + separatorLength;
+            lines.add(record);
+        }
+        FileHelper.overwriteFile(TRAIN_FILE, lines);
+        Map<String, Long> seatOffsets = timetable.seatOffsets;
+        seatOffsets.keySet().retainAll(offsets.keySet());
+        seatOffsets.putAll(offsets);
+        stamp();
+    }
+
+    private boolean writeSeatsInPlace(long offset, int seats) {
+        try {
+            if (seatChannel == null) {
+                seatChannel = FileChannel.open(Paths.get(TRAIN_FILE), StandardOpenOption.WRITE);
+            }
+            ByteBuffer field = ByteBuffer.wrap(formatSeats(seats).getBytes(StandardCharsets.US_ASCII));
+            while (field.hasRemaining()) {
+                seatChannel.write(field, offset + field.position());
+            }
+            return true;
+        } catch (IOException e) {
+            System.out.println(ConsoleColors.RED + "Error updating seats in place: " + e.getMessage() + ConsoleColors.RESET);
+            closeSeatChannel();
+            return false;
+        }
+    }
+
+    private void closeSeatChannel() {
+        if (seatChannel != null) {
+            try {
+                seatChannel.close();
+            } catch (IOException e) {
+                // Channel is discarded either way
+            }
+            seatChannel = null;
+        }
+    }
+
+    // Same layout as Train.toString() but with the seats column padded to SEATS_WIDTH
+    private static String toRecord(Train train) {
+        return String.join(",", train.getTrainId(), train.getName(), train.getSource(),
+                train.getDestination(), train.getDate(), train.getTime(),
+                formatSeats(train.getSeats()), String.valueOf(train.getFare()));
+    }
+
+    private static String formatSeats(int seats) {
+        return String.format("%0" + SEATS_WIDTH + "d", seats);
+    }
+
+    private static int seatsFieldOffset(byte[] record) {
+        int commas = 0;
+        for (int i = 0; i < record.length; i++) {
+            if (record[i] == ',' && ++commas == SEATS_FIELD) {
+                return i + 1;
+            }
+        }
+        throw new IllegalArgumentException("Malformed train record");
+    }
+
+    private List<Train> sortedTrains() {
+        List<Train> result = new ArrayList<>(timetable.trains.values());
+        result.sort(Comparator.comparing(Train::getTrainId));
+        return result;
+    }
+
+    private void stamp() {
+        long[] stamp = fileStamp();
+        loadedModified = stamp[0];
+        loadedSize = stamp[1];
+    }
+}
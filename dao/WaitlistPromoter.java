@@ -0,0 +1,103 @@
+// WaitlistPromoter.java
+package dao;
+
+import events.EventManager;
+import events.RailwayEvent;
+import events.WaitlistPromoted;
+import model.Ticket;
+import model.WaitlistEntry;
+import util.StripedLockManager;
+
+import java.util.*;
+
+/**
+ * Confirms waitlisted passengers in bulk. For one train it reserves as many
+ * free seats as there are passengers waiting, then writes all the confirmed
+ * tickets, the seat count and the waitlist tombstones once each before
+ * dispatching the WAITLIST_PROCESSED events.
+ */
+@SuppressWarnings("try") // StripedLockManager.Held is only ever closed
+public class WaitlistPromoter {
+    private static WaitlistPromoter instance;
+
+    private final TicketStore ticketStore = TicketStore.getInstance();
+    private final WaitlistStore waitlistStore = WaitlistStore.getInstance();
+    private final SeatInventory seatInventory = SeatInventory.getInstance();
+    private final StripedLockManager trainLocks = StripedLockManager.getInstance();
+
+    private WaitlistPromoter() {
+    }
+
+    public static synchronized WaitlistPromoter getInstance() {
+        if (instance == null) {
+            instance = new WaitlistPromoter();
+        }
+        return instance;
+    }
+
+    // Fills every free seat on the train from its waitlist; returns the confirmed tickets
+    public List<Ticket> promote(String trainId) {
+        List<WaitlistPromoted> promotions = confirm(trainId);
+        publish(promotions);
+        List<Ticket> confirmed = new ArrayList<>(promotions.size());
+        for (WaitlistPromoted promotion : promotions) {
+            confirmed.add(promotion.ticket());
+        }
+        return confirmed;
+    }
+
+    /**
+     * The part of promote that runs under the train's lock, without
+     * dispatching anything. A caller that already holds the lock uses it and
+     * passes the result to publish once the lock is released.
+     */
+    public List<WaitlistPromoted> confirm(String trainId) {
+        List<WaitlistPromoted> promotions = new ArrayList<>();
+        try (StripedLockManager.Held held = trainLocks.lock(trainId)) {
+            int waiting = waitlistStore.size(trainId);
+            if (waiting == 0) return promotions;
+            int seats = seatInventory.reserveUpTo(trainId, waiting);
+            if (seats == 0) return promotions;
+
+            List<WaitlistEntry> entries = waitlistStore.peek(trainId, seats);
+            List<Ticket> confirmed = new ArrayList<>(entries.size());
+            try {
+                for (WaitlistEntry entry : entries) {
+                    confirmed.add(entry.toTicket());
+                }
+                ticketStore.appendAll(trainId, confirmed);
+            } catch (RuntimeException e) {
+                seatInventory.release(trainId, seats);
+                throw e;
+            }
+            if (entries.size() < seats) {
+                seatInventory.release(trainId, seats - entries.size());
+            }
+            waitlistStore.poll(trainId, entries.size());
+            for (int i = 0; i < confirmed.size(); i++) {
+                promotions.add(new WaitlistPromoted(confirmed.get(i), entries.get(i)));
+            }
+        }
+        return promotions;
+    }
+
+    public void publish(List<WaitlistPromoted> promotions) {
+        EventManager events = EventManager.getInstance();
+        if (promotions.isEmpty() || !events.hasSubscribers(RailwayEvent.WAITLIST_PROCESSED)) return;
+        for (WaitlistPromoted promotion : promotions) {
+            events.dispatchEvent(RailwayEvent.WAITLIST_PROCESSED, promotion);
+        }
+    }
+
+    // Runs promote for every train with a non-empty waitlist, keyed by train ID
+    public Map<String, List<Ticket>> rebalanceAll() {
+        Map<String, List<Ticket>> confirmed = new TreeMap<>();
+        for (String trainId : waitlistStore.trainsWithWaitlist()) {
+            List<Ticket> tickets = promote(trainId);
+            if (!tickets.isEmpty()) {
+                confirmed.put(trainId, tickets);
+            }
+        }
+        return confirmed;
+    }
+}
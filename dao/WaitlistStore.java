@@ -0,0 +1,294 @@
+// WaitlistStore.java
+package dao;
+
+import model.WaitlistEntry;
+import util.ConsoleColors;
+import util.FileHelper;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-train FIFO waitlists, each backed by an append-only log under
+ * data/waitlist/. Joining the waitlist appends the entry; a promotion appends a
+ * CONFIRMED tombstone, and the log is rewritten once tombstones dominate it.
+ *
+ * Every entry carries a per-train sequence number, so a passenger's position is
+ * their sequence minus the sequence at the head of the queue.
+ */
+public class WaitlistStore {
+    private static final String LEGACY_WAITLIST_FILE = "data/waitlist.txt";
+    private static final String LEGACY_BACKUP_FILE = "data/backup/waitlist.txt";
+    private static final String WAITLIST_DIR = "data/waitlist";
+    private static final String TOMBSTONE_PREFIX = "CONFIRMED,";
+    private static final int COMPACTION_MIN_LINES = 64;
+    private static WaitlistStore instance;
+
+    private static final class TrainQueue {
+        private final ArrayDeque<WaitlistEntry> entries = new ArrayDeque<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private long headSequence;
+        private long nextSequence;
+        private int logLines;
+        private int tombstones;
+    }
+
+    private static final class Slot {
+        private final WaitlistEntry entry;
+        private final long sequence;
+
+        Slot(WaitlistEntry entry, long sequence) {
+            this.entry = entry;
+            this.sequence = sequence;
+        }
+    }
+
+    private final Map<String, TrainQueue> queues = new ConcurrentHashMap<>();
+    private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+    private final TicketStore ticketStore = TicketStore.getInstance();
+
+    private WaitlistStore() {
+        File dir = new File(WAITLIST_DIR);
+        if (!dir.isDirectory()) {
+            dir.mkdirs();
+            migrateLegacyFile();
+        }
+        File[] logs = dir.listFiles((d, name) -> name.endsWith(".txt"));
+        if (logs != null) {
+            for (File log : logs) {
+                String trainId = log.getName().substring(0, log.getName().length() - 4);
+                load(trainId);
+            }
+        }
+    }
+
+    public static synchronized WaitlistStore getInstance() {
+        if (instance == null) {
+            instance = new WaitlistStore();
+        }
+        return instance;
+    }
+
+    // Adds the entry at the back of its train's queue and returns its position (1-based)
+    public int enqueue(WaitlistEntry entry) {
+        TrainQueue queue = queueFor(entry.getTrainId());
+        queue.lock.lock();
+        try {
+            if (slots.containsKey(entry.getPnr())) {
+                throw new IllegalStateException("PNR " + entry.getPnr() + " is already waitlisted");
+            }
+            FileHelper.appendToFile(logPath(entry.getTrainId()), entry.toCSV());
+            queue.logLines++;
+            long sequence = queue.nextSequence++;
+            queue.entries.addLast(entry);
+            slots.put(entry.getPnr(), new Slot(entry, sequence));
+            return (int) (sequence - queue.headSequence + 1);
+        } finally {
+            queue.lock.unlock();
+        }
+    }
+
+    public WaitlistEntry peek(String trainId) {
+        List<WaitlistEntry> head = peek(trainId, 1);
+        return head.isEmpty() ? null : head.get(0);
+    }
+
+    // The first 'count' entries of the train's queue, in order
+    public List<WaitlistEntry> peek(String trainId, int count) {
+        List<WaitlistEntry> head = new ArrayList<>();
+        TrainQueue queue = queues.get(normalize(trainId));
+        if (queue == null) return head;
+        queue.lock.lock();
+        try {
+            Iterator<WaitlistEntry> it = queue.entries.iterator();
+            while (it.hasNext() && head.size() < count) {
+                head.add(it.next());
+            }
+        } finally {
+            queue.lock.unlock();
+        }
+        return head;
+    }
+
+    /**
+     * Removes the head of the train's queue once its ticket has been confirmed.
+     * Returns null when nobody is waiting.
+     */
+    public WaitlistEntry poll(String trainId) {
+        List<WaitlistEntry> head = poll(trainId, 1);
+        return head.isEmpty() ? null : head.get(0);
+    }
+
+    // Removes up to 'count' confirmed entries from the head with a single log append
+    public List<WaitlistEntry> poll(String trainId, int count) {
+        String key = normalize(trainId);
+        List<WaitlistEntry> removed = new ArrayList<>();
+        TrainQueue queue = queues.get(key);
+        if (queue == null) return removed;
+        queue.lock.lock();
+        try {
+            List<String> tombstones = new ArrayList<>();
+            while (removed.size() < count && !queue.entries.isEmpty()) {
+                WaitlistEntry head = queue.entries.pollFirst();
+                queue.headSequence++;
+                slots.remove(head.getPnr());
+                tombstones.add(TOMBSTONE_PREFIX + head.getPnr());
+                removed.add(head);
+            }
+            if (removed.isEmpty()) return removed;
+            FileHelper.appendLines(logPath(key), tombstones);
+            queue.logLines += tombstones.size();
+            queue.tombstones += tombstones.size();
+            if (queue.entries.isEmpty() || (queue.logLines >= COMPACTION_MIN_LINES && queue.tombstones * 2 >= queue.logLines)) {
+                compact(key, queue);
+            }
+            return removed;
+        } finally {
+            queue.lock.unlock();
+        }
+    }
+
+    // Trains that currently have at least one passenger waiting, ordered by ID
+    public List<String> trainsWithWaitlist() {
+        List<String> trainIds = new ArrayList<>();
+        for (Map.Entry<String, TrainQueue> entry : queues.entrySet()) {
+            if (size(entry.getKey()) > 0) trainIds.add(entry.getKey());
+        }
+        Collections.sort(trainIds);
+        return trainIds;
+    }
+
+    public WaitlistEntry find(String pnr) {
+        Slot slot = slotFor(pnr);
+        return slot == null ? null : slot.entry;
+    }
+
+    // 1-based position on the train's waitlist, or 0 if the PNR is not waitlisted
+    public int positionOf(String pnr) {
+        Slot slot = slotFor(pnr);
+        if (slot == null) return 0;
+        TrainQueue queue = queues.get(slot.entry.getTrainId());
+        queue.lock.lock();
+        try {
+            return slots.get(normalize(pnr)) == slot ? (int) (slot.sequence - queue.headSequence + 1) : 0;
+        } finally {
+            queue.lock.unlock();
+        }
+    }
+
+    public boolean contains(String pnr) {
+        return slotFor(pnr) != null;
+    }
+
+    public int size(String trainId) {
+        TrainQueue queue = queues.get(normalize(trainId));
+        if (queue == null) return 0;
+        queue.lock.lock();
+        try {
+            return queue.entries.size();
+        } finally {
+            queue.lock.unlock();
+        }
+    }
+
+    public int size() {
+        return slots.size();
+    }
+
+    private Slot slotFor(String pnr) {
+        return pnr == null ? null : slots.get(normalize(pnr));
+    }
+
+    private TrainQueue queueFor(String trainId) {
+        return queues.computeIfAbsent(normalize(trainId), k -> new TrainQueue());
+    }
+
+    private void load(String trainId) {
+        Map<String, WaitlistEntry> live = new LinkedHashMap<>();
+        int[] lines = {0, 0};
+        FileHelper.lines(logPath(trainId)).forEach(line -> {
+            lines[0]++;
+            if (line.startsWith(TOMBSTONE_PREFIX)) {
+                live.remove(line.substring(TOMBSTONE_PREFIX.length()).trim());
+                lines[1]++;
+                return;
+            }
+            WaitlistEntry entry = parse(line);
+            if (entry != null) {
+                live.put(entry.getPnr(), entry);
+            }
+        });
+
+        TrainQueue queue = queueFor(trainId);
+        queue.logLines = lines[0];
+        queue.tombstones = lines[1];
+        for (WaitlistEntry entry : live.values()) {
+            // Confirmed but not yet tombstoned when the process stopped
+            if (ticketStore.containsPnr(entry.getPnr())) continue;
+            queue.entries.addLast(entry);
+            slots.put(entry.getPnr(), new Slot(entry, queue.nextSequence++));
+        }
+        if (queue.entries.size() != queue.logLines) {
+            compact(trainId, queue);
+        }
+    }
+
+    private void compact(String trainId, TrainQueue queue) {
+        List<String> lines = new ArrayList<>(queue.entries.size());
+        for (WaitlistEntry entry : queue.entries) {
+            lines.add(entry.toCSV());
+        }
+        FileHelper.overwriteFile(logPath(trainId), lines);
+        queue.logLines = lines.size();
+        queue.tombstones = 0;
+    }
+
+    static WaitlistEntry parse(String line) {
+        String[] parts = line.split(",");
+        if (parts.length != 6) return null;
+        try {
+            return new WaitlistEntry(parts[0], parts[1], parts[2], parts[3],
+                    Integer.parseInt(parts[4].trim()), parts[5]);
+        } catch (IllegalArgumentException e) {
+            System.out.println(ConsoleColors.RED + "Skipping corrupted waitlist entry: " + line + ConsoleColors.RESET);
+            return null;
+        }
+    }
+
+    // Legacy lines are userEmail,trainId,passengerName,passengerAge,travelClass with no PNR
+    private void migrateLegacyFile() {
+        if (!FileHelper.fileExists(LEGACY_WAITLIST_FILE)) return;
+        Map<String, List<String>> byTrain = new TreeMap<>();
+        Set<String> assigned = new HashSet<>();
+        PnrAllocator allocator = PnrAllocator.getInstance();
+        for (String line : FileHelper.readFile(LEGACY_WAITLIST_FILE)) {
+            String[] parts = line.split(",");
+            if (parts.length != 5) continue;
+            String pnr = allocator.allocate(p -> assigned.contains(p) || ticketStore.containsPnr(p));
+            try {
+                WaitlistEntry entry = new WaitlistEntry(pnr, parts[1], parts[0], parts[2],
+                        Integer.parseInt(parts[3].trim()), parts[4]);
+                assigned.add(pnr);
+                byTrain.computeIfAbsent(entry.getTrainId(), k -> new ArrayList<>()).add(entry.toCSV());
+            } catch (IllegalArgumentException e) {
+                System.out.println(ConsoleColors.RED + "Skipping corrupted waitlist entry: " + line + ConsoleColors.RESET);
+            }
+        }
+        for (Map.Entry<String, List<String>> entry : byTrain.entrySet()) {
+            FileHelper.overwriteFile(logPath(entry.getKey()), entry.getValue());
+        }
+        if (FileHelper.backupFile(LEGACY_WAITLIST_FILE, LEGACY_BACKUP_FILE)) {
+            new File(LEGACY_WAITLIST_FILE).delete();
+        }
+    }
+
+    private static String logPath(String trainId) {
+        return WAITLIST_DIR + "/" + trainId + ".txt";
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toUpperCase();
+    }
+}
@@ -1,15 +1,47 @@
 // events/EventManager.java
 package events;
 
+import util.RingBuffer;
+import util.Shutdown;
+import util.Threads;
+
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Delivers railway events to registered listeners. Each listener subscribes
+ * to a set of event types; dispatch looks up the subscribers of one type in an
+ * EnumMap of copy-on-write arrays, so listeners never see other events.
+ *
+ * By default listeners run synchronously on the dispatching thread. After
+ * enableAsync each listener gets its own bounded ring buffer and consumer
+ * thread (virtual when available), so slow listeners no longer add to booking
+ * latency and every listener still sees events in dispatch order. When a
+ * listener's buffer is full the back-pressure policy decides: BLOCK waits for
+ * space, DROP discards the event, CALLER_RUNS delivers it on the dispatching
+ * thread (which may overtake events still queued for that listener, and may
+ * run concurrently with its consumer).
+ */
 public class EventManager {
+    public enum BackPressure { BLOCK, DROP, CALLER_RUNS }
+
     private static EventManager instance;
-    private final List<EventListener> listeners;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    // Replaced wholesale on (un)registration; dispatch only reads it
+    private volatile EnumMap<RailwayEvent, Subscriber[]> routes = new EnumMap<>(RailwayEvent.class);
+    private volatile boolean async;
+    private volatile int capacity;
+    private volatile BackPressure backPressure = BackPressure.BLOCK;
 
     private EventManager() {
-        listeners = new ArrayList<>();
+        Shutdown.register(Shutdown.Stage.EVENTS, this::shutdown);
     }
 
     public static synchronized EventManager getInstance() {
@@ -19,17 +51,221 @@ public class EventManager {
         return instance;
     }
 
+    // Subscribes the listener to every event type
     public void registerListener(EventListener listener) {
-        listeners.add(listener);
+        registerListener(listener, EnumSet.allOf(RailwayEvent.class));
+    }
+
+    public synchronized void registerListener(EventListener listener, EnumSet<RailwayEvent> events) {
+        Subscriber subscriber = new Subscriber(listener, EnumSet.copyOf(events));
+        if (async) subscriber.start(capacity);
+        subscribers.add(subscriber);
+        rebuildRoutes();
     }
 
-    public void unregisterListener(EventListener listener) {
-        listeners.remove(listener);
+    public synchronized void unregisterListener(EventListener listener) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.listener == listener) {
+                subscribers.remove(subscriber);
+                rebuildRoutes();
+                subscriber.stop();
+                return;
+            }
+        }
+    }
+
+    /**
+     * True if anyone listens for this event type. Hot paths check it before
+     * building a payload so unobserved events cost nothing.
+     */
+    public boolean hasSubscribers(RailwayEvent event) {
+        return routes.containsKey(event);
     }
 
     public void dispatchEvent(RailwayEvent event, Object data) {
-        for (EventListener listener : listeners) {
-            listener.onEvent(event, data);
+        Subscriber[] targets = routes.get(event);
+        if (targets == null) return;
+        for (Subscriber subscriber : targets) {
+            subscriber.publish(event, data, backPressure);
+        }
+    }
+
+    private void rebuildRoutes() {
+        EnumMap<RailwayEvent, Subscriber[]> rebuilt = new EnumMap<>(RailwayEvent.class);
+        for (RailwayEvent event : RailwayEvent.values()) {
+            List<Subscriber> targets = new ArrayList<>();
+            for (Subscriber subscriber : subscribers) {
+                if (subscriber.events.contains(event)) targets.add(subscriber);
+            }
+            if (!targets.isEmpty()) {
+                rebuilt.put(event, targets.toArray(new Subscriber[0]));
+            }
+        }
+        routes = rebuilt;
+    }
+
+    /**
+     * Switches to asynchronous delivery with a buffer of the given size per
+     * listener. Calling it again drains the old buffers first.
+     */
+    public synchronized void enableAsync(int bufferSize, BackPressure policy) {
+        if (bufferSize <= 0) throw new IllegalArgumentException("Buffer size must be positive");
+        shutdown();
+        this.capacity = bufferSize;
+        this.backPressure = policy;
+        for (Subscriber subscriber : subscribers) {
+            subscriber.start(bufferSize);
+        }
+        async = true;
+    }
+
+    // Waits until every event dispatched so far has been handled by every listener
+    public void flush() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.awaitDrained();
+        }
+    }
+
+    // Drains all buffers, stops the consumer threads and returns to synchronous delivery
+    public synchronized void shutdown() {
+        async = false;
+        for (Subscriber subscriber : subscribers) {
+            subscriber.stop();
+        }
+    }
+
+    public long getDroppedEvents() {
+        long dropped = 0;
+        for (Subscriber subscriber : subscribers) {
+            dropped += subscriber.dropped.sum();
+        }
+        return dropped;
+    }
+
+    private static final class Envelope {
+        private final RailwayEvent event;
+        private final Object data;
+
+        Envelope(RailwayEvent event, Object data) {
+            this.event = event;
+            this.data = data;
+        }
+    }
+
+    private static final class Subscriber {
+        private final EventListener listener;
+        private final EnumSet<RailwayEvent> events;
+        private final AtomicLong published = new AtomicLong();
+        private final AtomicInteger publishing = new AtomicInteger();
+        private final LongAdder dropped = new LongAdder();
+        private volatile RingBuffer<Envelope> buffer;
+        private volatile Thread consumer;
+        private volatile boolean running;
+        private volatile boolean sleeping;
+        private volatile long completed;
+
+        Subscriber(EventListener listener, EnumSet<RailwayEvent> events) {
+            this.listener = listener;
+            this.events = events;
+        }
+
+        void start(int bufferSize) {
+            buffer = new RingBuffer<>(bufferSize);
+            published.set(0);
+            completed = 0;
+            running = true;
+            consumer = Threads.start("event-" + listener.getClass().getSimpleName(), this::consume);
+        }
+
+        void publish(RailwayEvent event, Object data, BackPressure policy) {
+            // stop() waits for publishers that got past the running check
+            publishing.incrementAndGet();
+            try {
+                RingBuffer<Envelope> current = buffer;
+                Thread target = consumer;
+                // Synchronous mode, or a listener dispatching from its own consumer thread
+                if (!running || current == null || Thread.currentThread() == target) {
+                    deliver(event, data);
+                    return;
+                }
+                Envelope envelope = new Envelope(event, data);
+                while (!current.offer(envelope)) {
+                    if (policy == BackPressure.DROP) {
+                        dropped.increment();
+                        return;
+                    }
+                    if (policy == BackPressure.CALLER_RUNS || !running) {
+                        deliver(event, data);
+                        return;
+                    }
+                    LockSupport.unpark(target);
+                    LockSupport.parkNanos(50_000);
+                }
+                published.incrementAndGet();
+                if (sleeping) LockSupport.unpark(target);
+            } finally {
+                publishing.decrementAndGet();
+            }
+        }
+
+        private void consume() {
+            RingBuffer<Envelope> current = buffer;
+            while (true) {
+                Envelope envelope = current.poll();
+                if (envelope != null) {
+                    deliver(envelope.event, envelope.data);
+                    completed++;
+                    continue;
+                }
+                if (!running) return;
+                sleeping = true;
+                if (current.isEmpty() && running) {
+                    LockSupport.parkNanos(10_000_000);
+                }
+                sleeping = false;
+            }
+        }
+
+        private void deliver(RailwayEvent event, Object data) {
+            try {
+                listener.onEvent(event, data);
+            } catch (RuntimeException e) {
+                System.err.println("Event listener " + listener.getClass().getSimpleName()
+                        + " failed on " + event + ": " + e.getMessage());
+            }
+        }
+
+        void awaitDrained() {
+            Thread current = consumer;
+            if (current == null || Thread.currentThread() == current) return;
+            long target = published.get();
+            while (completed < target && current.isAlive()) {
+                LockSupport.unpark(current);
+                LockSupport.parkNanos(100_000);
+            }
+        }
+
+        void stop() {
+            Thread current = consumer;
+            if (current == null || Thread.currentThread() == current) return;
+            running = false;
+            while (publishing.get() > 0) {
+                Thread.onSpinWait();
+            }
+            LockSupport.unpark(current);
+            try {
+                current.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            // Anything offered after the consumer's last poll is delivered here
+            RingBuffer<Envelope> remaining = buffer;
+            for (Envelope envelope = remaining.poll(); envelope != null; envelope = remaining.poll()) {
+                deliver(envelope.event, envelope.data);
+                completed++;
+            }
+            consumer = null;
+            buffer = null;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,9 @@
+// events/TicketBooked.java
+package events;
+
+import model.Ticket;
+import model.Train;
+
+// Payload of TICKET_BOOKED
+public record TicketBooked(Ticket ticket, Train train) {
+}
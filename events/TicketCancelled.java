@@ -0,0 +1,8 @@
+// events/TicketCancelled.java
+package events;
+
+import model.Ticket;
+
+// Payload of TICKET_CANCELLED
+public record TicketCancelled(Ticket ticket, String userEmail) {
+}
@@ -0,0 +1,17 @@
+// events/TrainChanged.java
+package events;
+
+import model.Train;
+
+import java.time.LocalDateTime;
+
+/**
+ * Payload of TRAIN_ADDED, TRAIN_MODIFIED and TRAIN_DELETED. The train is a
+ * snapshot taken at dispatch time; it is null for a deletion. The time is
+ * when the change was made, since listeners may run later on their own thread.
+ */
+public record TrainChanged(String trainId, Train train, LocalDateTime at) {
+    public TrainChanged(String trainId, Train train) {
+        this(trainId, train, LocalDateTime.now());
+    }
+}
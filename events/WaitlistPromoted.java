@@ -0,0 +1,9 @@
+// events/WaitlistPromoted.java
+package events;
+
+import model.Ticket;
+import model.WaitlistEntry;
+
+// Payload of WAITLIST_PROCESSED: the confirmed ticket and the entry it replaced
+public record WaitlistPromoted(Ticket ticket, WaitlistEntry entry) {
+}
@@ -3,40 +3,35 @@ package events.listeners;
 
 import events.EventListener;
 import events.RailwayEvent;
-import model.Ticket;
-import model.Train;
+import events.TicketBooked;
+import events.TicketCancelled;
+import events.WaitlistPromoted;
 import util.ConsoleColors;
 
+// Subscribe to TICKET_BOOKED, TICKET_CANCELLED and WAITLIST_PROCESSED
 public class BookingNotificationListener implements EventListener {
     @Override
     public void onEvent(RailwayEvent event, Object data) {
-        if (event == RailwayEvent.TICKET_BOOKED && data instanceof Object[]) {
-            Object[] eventData = (Object[]) data;
-            if (eventData.length == 2 && eventData[0] instanceof Ticket && eventData[1] instanceof Train) {
-                Ticket ticket = (Ticket) eventData[0];
-                Train train = (Train) eventData[1];
+        switch (event) {
+            case TICKET_BOOKED:
+                TicketBooked booked = (TicketBooked) data;
                 System.out.println(ConsoleColors.YELLOW + "\n--- NOTIFICATION: Ticket Booked ---" + ConsoleColors.RESET);
-                System.out.println("User: " + ticket.getUserEmail() + " booked a ticket for " + train.getName() + " (PNR: " + ticket.getPnr() + ")");
-                System.out.println("Train: " + train.getSource() + " to " + train.getDestination() + " on " + train.getDate());
-            }
-        } else if (event == RailwayEvent.TICKET_CANCELLED && data instanceof Object[]) {
-            Object[] eventData = (Object[]) data;
-            if (eventData.length == 2 && eventData[0] instanceof Ticket && eventData[1] instanceof String) {
-                Ticket ticket = (Ticket) eventData[0];
-                String userEmail = (String) eventData[1];
+                System.out.println("User: " + booked.ticket().getUserEmail() + " booked a ticket for " + booked.train().getName() + " (PNR: " + booked.ticket().getPnr() + ")");
+                System.out.println("Train: " + booked.train().getSource() + " to " + booked.train().getDestination() + " on " + booked.train().getDate());
+                break;
+            case TICKET_CANCELLED:
+                TicketCancelled cancelled = (TicketCancelled) data;
                 System.out.println(ConsoleColors.YELLOW + "\n--- NOTIFICATION: Ticket Cancelled ---" + ConsoleColors.RESET);
-                System.out.println("User: " + userEmail + " cancelled ticket with PNR: " + ticket.getPnr());
-            }
-        } else if (event == RailwayEvent.WAITLIST_PROCESSED && data instanceof Object[]) {
-            Object[] eventData = (Object[]) data;
-            if (eventData.length == 2 && eventData[0] instanceof Ticket && eventData[1] instanceof String) {
-                Ticket confirmedTicket = (Ticket) eventData[0];
-                String originalWaitlistEntry = (String) eventData[1];
-                String userEmail = originalWaitlistEntry.split(",")[0];
+                System.out.println("User: " + cancelled.userEmail() + " cancelled ticket with PNR: " + cancelled.ticket().getPnr());
+                break;
+            case WAITLIST_PROCESSED:
+                WaitlistPromoted promoted = (WaitlistPromoted) data;
                 System.out.println(ConsoleColors.YELLOW + "\n--- NOTIFICATION: Waitlist Confirmed ---" + ConsoleColors.RESET);
-                System.out.println("User: " + userEmail + "'s waitlist ticket confirmed! PNR: " + confirmedTicket.getPnr());
-                System.out.println("Train: " + confirmedTicket.getTrainId());
-            }
+                System.out.println("User: " + promoted.entry().getUserEmail() + "'s waitlist ticket confirmed! PNR: " + promoted.ticket().getPnr());
+                System.out.println("Train: " + promoted.ticket().getTrainId());
+                break;
+            default:
+                break;
         }
     }
-}
\ No newline at end of file
+}
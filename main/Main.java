@@ -7,24 +7,42 @@ import dao.TicketDAO;
 import dao.TrainDAO;
 import model.User;
 import util.ConsoleColors;
+import util.Shutdown;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.EnumSet;
 import java.util.Scanner;
 import events.EventManager;
+import events.RailwayEvent;
 import events.listeners.BookingNotificationListener;
 import events.listeners.AdminActivityLogger;
+import server.RailwayServer;
 
 public class Main {
     static Scanner scanner = new Scanner(System.in);
     static AuthManager authManager = new AuthManager();
     static TrainDAO trainDAO = new TrainDAO();
     static TicketDAO ticketDAO = new TicketDAO();
+    static final int DEFAULT_PORT = 8080;
 
     public static void main(String[] args) {
         // Initialize Event Manager and register listeners
         EventManager eventManager = EventManager.getInstance();
-        eventManager.registerListener(new BookingNotificationListener());
-        eventManager.registerListener(new AdminActivityLogger());
+        eventManager.registerListener(new BookingNotificationListener(), EnumSet.of(
+                RailwayEvent.TICKET_BOOKED, RailwayEvent.TICKET_CANCELLED, RailwayEvent.WAITLIST_PROCESSED));
+        eventManager.registerListener(new AdminActivityLogger(), EnumSet.of(
+                RailwayEvent.TRAIN_ADDED, RailwayEvent.TRAIN_MODIFIED, RailwayEvent.TRAIN_DELETED));
+        // Listeners run off the booking path; menus flush them so output stays in order
+        eventManager.enableAsync(1024, EventManager.BackPressure.BLOCK);
+
+        if (args.length > 0 && args[0].equals("--server")) {
+            runServer(args);
+            return;
+        }
 
         while (true) {
+            eventManager.flush();
             System.out.println(ConsoleColors.CYAN + "\n===== Railway Reservation System =====" + ConsoleColors.RESET);
             System.out.println("1. User Login\n2. User Registration\n3. Admin Login\n4. Exit");
             System.out.print("Enter choice: ");
@@ -57,8 +75,47 @@ public class Main {
         }
     }
 
+    // Serves the JSON API until the process is stopped: --server [port] [--bind address]
+    private static void runServer(String[] args) {
+        int port = DEFAULT_PORT;
+        InetAddress address = InetAddress.getLoopbackAddress();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--bind") && i + 1 < args.length) {
+                try {
+                    address = InetAddress.getByName(args[++i]);
+                } catch (UnknownHostException e) {
+                    System.out.println(ConsoleColors.RED + "Invalid bind address: " + args[i] + ConsoleColors.RESET);
+                    return;
+                }
+            } else {
+                try {
+                    port = Integer.parseInt(args[i]);
+                } catch (NumberFormatException e) {
+                    System.out.println(ConsoleColors.RED + "Invalid port: " + args[i] + ConsoleColors.RESET);
+                    return;
+                }
+            }
+        }
+        try {
+            RailwayServer server = new RailwayServer(address, port);
+            Shutdown.register(Shutdown.Stage.SERVER, () -> server.stop(1));
+            server.start();
+            System.out.println(ConsoleColors.GREEN + "Railway Reservation System API listening on http://"
+                    + server.getAddress().getHostAddress() + ":" + server.getPort() + "/api/" + ConsoleColors.RESET);
+            if (!server.getAddress().isLoopbackAddress()) {
+                System.out.println(ConsoleColors.YELLOW + "Warning: passwords are sent as plaintext Basic auth; serve this address through a TLS proxy." + ConsoleColors.RESET);
+            }
+            Thread.currentThread().join();
+        } catch (IOException e) {
+            System.out.println(ConsoleColors.RED + "Could not start server on port " + port + ": " + e.getMessage() + ConsoleColors.RESET);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     private static void userMenu(User user) {
         while (true) {
+            EventManager.getInstance().flush();
             System.out.println(ConsoleColors.GREEN + "\n--- User Dashboard (" + user.getName() + ") ---" + ConsoleColors.RESET);
             System.out.println("1. Search Trains\n2. Book Ticket\n3. Cancel Ticket\n4. View My Tickets\n5. Check PNR Status\n6. Logout");
             System.out.print("Enter choice: ");
@@ -81,7 +138,7 @@ public class Main {
                         ticketDAO.viewMyTickets(user);
                         break;
                     case 5:
-                        ticketDAO.checkPNRStatus();
+                        ticketDAO.checkPNRStatus(user);
                         break;
                     case 6:
                         System.out.println(ConsoleColors.GREEN + "Logged out successfully." + ConsoleColors.RESET);
@@ -98,8 +155,9 @@ public class Main {
 
     private static void adminMenu() {
         while (true) {
+            EventManager.getInstance().flush();
             System.out.println(ConsoleColors.PURPLE + "\n--- Admin Dashboard ---" + ConsoleColors.RESET);
-            System.out.println("1. Add Train\n2. View Trains\n3. Modify Train\n4. Delete Train\n5. Sort Trains\n6. Generate Admin Report\n7. View All Tickets\n8. Logout");
+            System.out.println("1. Add Train\n2. View Trains\n3. Modify Train\n4. Delete Train\n5. Sort Trains\n6. Generate Admin Report\n7. View All Tickets\n8. Rebalance Waitlists\n9. Query Admin Log\n10. Logout");
             System.out.print("Enter choice: ");
             
             try {
@@ -129,10 +187,16 @@ public class Main {
                         ticketDAO.viewAllTickets();
                         break;
                     case 8:
+                        ticketDAO.rebalanceWaitlists();
+                        break;
+                    case 9:
+                        trainDAO.queryAdminLog();
+                        break;
+                    case 10:
                         System.out.println(ConsoleColors.GREEN + "Logged out successfully." + ConsoleColors.RESET);
                         return;
                     default:
-                        System.out.println(ConsoleColors.RED + "Invalid choice. Please enter 1-8." + ConsoleColors.RESET);
+                        System.out.println(ConsoleColors.RED + "Invalid choice. Please enter 1-10." + ConsoleColors.RESET);
                 }
             } catch (Exception e) {
                 System.out.println(ConsoleColors.RED + "Invalid input. Please enter a number." + ConsoleColors.RESET);
@@ -38,8 +38,8 @@ public class Train {
         if (!isValidTime(time)) {
             throw new IllegalArgumentException("Invalid time! Must be HH:MM in 24-hour format");
         }
-        if (!isValidSeats(seats)) {
-            throw new IllegalArgumentException("Invalid seats! Must be 1-1000");
+        if (!isValidAvailableSeats(seats)) {
+            throw new IllegalArgumentException("Invalid seats! Must be 0-1000");
         }
         if (!isValidFare(fare)) {
             throw new IllegalArgumentException("Invalid fare! Must be 1-100000");
@@ -55,6 +55,13 @@ public class Train {
         this.fare = fare;
     }
 
+    // Copy constructor (skips validation, source is already a valid train)
+    public Train(Train other) {
+        this.trainId = other.trainId;
+        this.departureTime = other.departureTime;
+        copyFrom(other);
+    }
+
     // Validation methods
     public static boolean isValidTrainId(String trainId) {
         return trainId != null && ID_PATTERN.matcher(trainId.toUpperCase()).matches();
@@ -84,6 +91,11 @@ public class Train {
     public static boolean isValidSeats(int seats) {
         return seats > 0 && seats <= 1000;
     }
+
+    // A sold-out train legitimately has zero seats left
+    public static boolean isValidAvailableSeats(int seats) {
+        return seats >= 0 && seats <= 1000;
+    }
     
     public static boolean isValidFare(double fare) {
         return fare > 0 && fare <= 100000;
@@ -101,7 +113,7 @@ public class Train {
 
     // Setters with validation
     public void setSeats(int seats) {
-        if (!isValidSeats(seats)) throw new IllegalArgumentException("Invalid seats value");
+        if (!isValidAvailableSeats(seats)) throw new IllegalArgumentException("Invalid seats value");
         this.seats = seats;
     }
     
@@ -0,0 +1,69 @@
+package model;
+
+/**
+ * A passenger waiting for a seat on a sold-out train. The PNR is assigned when
+ * the passenger joins the waitlist and is kept when the entry is confirmed.
+ */
+public class WaitlistEntry {
+    private final String pnr;
+    private final String trainId;
+    private final String userEmail;
+    private final String passengerName;
+    private final int passengerAge;
+    private final String travelClass;
+
+    public WaitlistEntry(String pnr, String trainId, String userEmail,
+                         String passengerName, int passengerAge, String travelClass)
+        throws IllegalArgumentException {
+
+        if (!Ticket.isValidPNR(pnr)) {
+            throw new IllegalArgumentException("Invalid PNR! Must be in format PNR12345");
+        }
+        if (!Train.isValidTrainId(trainId)) {
+            throw new IllegalArgumentException("Invalid Train ID");
+        }
+        if (!User.isValidEmail(userEmail)) {
+            throw new IllegalArgumentException("Invalid email format");
+        }
+        if (!Ticket.isValidPassengerName(passengerName)) {
+            throw new IllegalArgumentException("Invalid passenger name");
+        }
+        if (!User.isValidAge(passengerAge)) {
+            throw new IllegalArgumentException("Invalid passenger age");
+        }
+        if (!Ticket.isValidTravelClass(travelClass)) {
+            throw new IllegalArgumentException("Invalid travel class");
+        }
+
+        this.pnr = pnr.toUpperCase();
+        this.trainId = trainId.toUpperCase();
+        this.userEmail = userEmail.toLowerCase().trim();
+        this.passengerName = passengerName.trim();
+        this.passengerAge = passengerAge;
+        this.travelClass = travelClass.trim();
+    }
+
+    // Getters
+    public String getPnr() { return pnr; }
+    public String getTrainId() { return trainId; }
+    public String getUserEmail() { return userEmail; }
+    public String getPassengerName() { return passengerName; }
+    public int getPassengerAge() { return passengerAge; }
+    public String getTravelClass() { return travelClass; }
+
+    // The confirmed ticket this entry becomes once a seat is free
+    public Ticket toTicket() {
+        return new Ticket(pnr, trainId, userEmail, passengerName, passengerAge, travelClass);
+    }
+
+    public String toCSV() {
+        return String.join(",", pnr, trainId, userEmail,
+                         passengerName, String.valueOf(passengerAge), travelClass);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PNR: %s | Train: %s | Passenger: %s | Class: %s | WAITLISTED",
+                            pnr, trainId, passengerName, travelClass);
+    }
+}
@@ -0,0 +1,389 @@
+// server/RailwayServer.java
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import model.Ticket;
+import model.Train;
+import model.User;
+import model.WaitlistEntry;
+import service.*;
+import util.FileHelper;
+import util.StripedLockManager;
+import util.Threads;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * JSON over HTTP front-end for the booking services. The JDK server
+ * multiplexes connections on one selector thread and runs each request as a
+ * task on a virtual thread (a bounded platform pool before Java 21), so idle
+ * or slow clients never pin a thread each.
+ *
+ *   GET    /api/trains?source=&destination= | ?date=&until= | ?q= | ?after=&limit=
+ *   POST   /api/bookings              {"trainId","passengerName","passengerAge","travelClass"}
+ *   DELETE /api/bookings/{pnr}
+ *   GET    /api/pnr/{pnr}
+ *   GET    /api/admin/report
+ *
+ * Bookings and PNR status take the user's email and password as HTTP Basic
+ * credentials, the admin report the admin credentials. A PNR booked by
+ * another user is reported as not found.
+ */
+public class RailwayServer {
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final int BACKLOG = 1024;
+
+    // Ends a request with the given status and error message
+    private static final class HttpError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        private final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private interface Endpoint {
+        Response handle(HttpExchange exchange) throws IOException;
+    }
+
+    private record Response(int status, Object body) {
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final BookingService bookingService = BookingService.getInstance();
+    private final TrainService trainService = TrainService.getInstance();
+    private final AuthService authService = AuthService.getInstance();
+
+    // Listens on the loopback interface only
+    public RailwayServer(int port) throws IOException {
+        this(InetAddress.getLoopbackAddress(), port);
+    }
+
+    /**
+     * Listens on the given address. Credentials travel as plaintext Basic
+     * auth, so anything other than loopback belongs behind a TLS proxy.
+     */
+    public RailwayServer(InetAddress address, int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(address, port), BACKLOG);
+        executor = Threads.newTaskExecutor("http");
+        server.setExecutor(executor);
+        server.createContext("/api/trains", exchange -> serve(exchange, this::trains));
+        server.createContext("/api/bookings", exchange -> serve(exchange, this::bookings));
+        server.createContext("/api/pnr/", exchange -> serve(exchange, this::pnrStatus));
+        server.createContext("/api/admin/report", exchange -> serve(exchange, this::report));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    // Stops accepting requests, waiting up to delaySeconds for those in progress
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public InetAddress getAddress() {
+        return server.getAddress().getAddress();
+    }
+
+    private Response trains(HttpExchange exchange) {
+        if (!subPath(exchange.getRequestURI().getPath(), "/api/trains").isEmpty()) throw new HttpError(404, "Not found");
+        requireMethod(exchange, "GET");
+        Map<String, String> params = queryParams(exchange);
+        List<Train> trains;
+        try {
+            if (params.containsKey("q")) {
+                trains = trainService.search(new TrainQuery.ByIdOrName(params.get("q")));
+            } else if (params.containsKey("source") || params.containsKey("destination")) {
+                trains = trainService.search(new TrainQuery.ByRoute(required(params, "source"), required(params, "destination")));
+            } else if (params.containsKey("date")) {
+                LocalDate from = LocalDate.parse(params.get("date"));
+                LocalDate to = params.containsKey("until") ? LocalDate.parse(params.get("until")) : from;
+                trains = trainService.search(new TrainQuery.ByDate(from, to));
+            } else if (params.containsKey("after") || params.containsKey("limit")) {
+                LocalDateTime after = params.containsKey("after") ? LocalDateTime.parse(params.get("after")) : LocalDateTime.now();
+                int limit = params.containsKey("limit") ? Integer.parseInt(params.get("limit")) : 10;
+                trains = trainService.search(new TrainQuery.NextDepartures(after, limit));
+            } else {
+                trains = trainService.allTrains();
+            }
+        } catch (DateTimeParseException e) {
+            throw new HttpError(400, "Dates must be YYYY-MM-DD, times YYYY-MM-DDTHH:MM");
+        } catch (NumberFormatException e) {
+            throw new HttpError(400, "limit must be a number");
+        }
+        List<Object> body = new ArrayList<>(trains.size());
+        for (Train train : trains) {
+            body.add(trainJson(train));
+        }
+        return new Response(200, Map.of("trains", body));
+    }
+
+    private Response bookings(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String pnr = subPath(path, "/api/bookings");
+        if (pnr.isEmpty()) {
+            requireMethod(exchange, "POST");
+            User user = authenticateUser(exchange);
+            Map<String, Object> body = Json.parseObject(readBody(exchange));
+            BookingResult result = bookingService.book(new BookingRequest(user.getEmail(),
+                    string(body, "trainId"), string(body, "passengerName"),
+                    integer(body, "passengerAge"), string(body, "travelClass")));
+
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("status", result.isConfirmed() ? "CONFIRMED" : "WAITLISTED");
+            json.put("pnr", result.pnr());
+            json.put("train", trainJson(result.train()));
+            if (result.isConfirmed()) {
+                json.put("ticket", ticketJson(result.ticket()));
+            } else {
+                json.put("waitlistEntry", waitlistJson(result.waitlistEntry()));
+                json.put("waitlistPosition", result.waitlistPosition());
+            }
+            return new Response(201, json);
+        }
+
+        requireMethod(exchange, "DELETE");
+        User user = authenticateUser(exchange);
+        CancellationResult result = bookingService.cancel(pnr, user.getEmail());
+        if (result == null) {
+            throw new HttpError(404, "Ticket not found or you don't have permission to cancel this ticket.");
+        }
+        List<Object> promoted = new ArrayList<>();
+        for (Ticket ticket : result.promoted()) {
+            promoted.add(ticketJson(ticket));
+        }
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("cancelled", ticketJson(result.cancelled()));
+        json.put("promoted", promoted);
+        return new Response(200, json);
+    }
+
+    private Response pnrStatus(HttpExchange exchange) {
+        requireMethod(exchange, "GET");
+        User user = authenticateUser(exchange);
+        String pnr = subPath(exchange.getRequestURI().getPath(), "/api/pnr");
+        // Other users' bookings come back as NOT_FOUND, the same as unknown PNRs
+        PnrStatus status = bookingService.status(pnr, user.getEmail());
+
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("pnr", status.pnr());
+        json.put("status", status.state().name());
+        if (status.ticket() != null) json.put("ticket", ticketJson(status.ticket()));
+        if (status.waitlistEntry() != null) {
+            json.put("waitlistEntry", waitlistJson(status.waitlistEntry()));
+            json.put("waitlistPosition", status.waitlistPosition());
+        }
+        return new Response(status.state() == PnrStatus.State.NOT_FOUND ? 404 : 200, json);
+    }
+
+    private Response report(HttpExchange exchange) {
+        if (!subPath(exchange.getRequestURI().getPath(), "/api/admin/report").isEmpty()) throw new HttpError(404, "Not found");
+        requireMethod(exchange, "GET");
+        String[] credentials = basicCredentials(exchange);
+        if (!authService.authenticateAdmin(credentials[0], credentials[1])) {
+            throw new HttpError(401, "Invalid admin credentials");
+        }
+        AdminReport report = bookingService.report();
+
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("totalTrains", report.totalTrains());
+        json.put("totalTickets", report.totalTickets());
+        json.put("waitlistEntries", report.waitlistEntries());
+        json.put("occupancy", occupancyJson(report.occupancy()));
+        json.put("mostBooked", occupancyJson(report.mostBooked()));
+        Map<String, Object> locks = new LinkedHashMap<>();
+        for (Map.Entry<String, StripedLockManager.KeyStats> entry : report.lockStats().entrySet()) {
+            StripedLockManager.KeyStats stats = entry.getValue();
+            Map<String, Object> lock = new LinkedHashMap<>();
+            lock.put("acquisitions", stats.getAcquisitions());
+            lock.put("contended", stats.getContended());
+            lock.put("waitNanos", stats.getWaitNanos());
+            lock.put("holdNanos", stats.getHoldNanos());
+            lock.put("maxHoldNanos", stats.getMaxHoldNanos());
+            locks.put(entry.getKey(), lock);
+        }
+        json.put("lockContention", locks);
+        return new Response(200, json);
+    }
+
+    private void serve(HttpExchange exchange, Endpoint endpoint) {
+        Response response;
+        try {
+            response = endpoint.handle(exchange);
+        } catch (HttpError e) {
+            if (e.status == 401) {
+                exchange.getResponseHeaders().set("WWW-Authenticate", "Basic realm=\"railway\"");
+            }
+            response = new Response(e.status, Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            response = new Response(400, Map.of("error", String.valueOf(e.getMessage())));
+        } catch (IllegalStateException e) {
+            response = new Response(409, Map.of("error", String.valueOf(e.getMessage())));
+        } catch (Exception e) {
+            System.err.println("Error handling " + exchange.getRequestMethod() + " "
+                    + exchange.getRequestURI() + ": " + e);
+            response = new Response(500, Map.of("error", "Internal server error"));
+        }
+
+        byte[] bytes = Json.write(response.body()).getBytes(FileHelper.CHARSET);
+        try (OutputStream out = exchange.getResponseBody()) {
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(response.status(), bytes.length);
+            out.write(bytes);
+        } catch (IOException e) {
+            // Client went away
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private User authenticateUser(HttpExchange exchange) {
+        String[] credentials = basicCredentials(exchange);
+        try {
+            return authService.login(credentials[0], credentials[1]);
+        } catch (IllegalArgumentException e) {
+            throw new HttpError(401, e.getMessage());
+        }
+    }
+
+    private static String[] basicCredentials(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.regionMatches(true, 0, "Basic ", 0, 6)) {
+            throw new HttpError(401, "Authentication required");
+        }
+        String decoded;
+        try {
+            decoded = new String(Base64.getDecoder().decode(header.substring(6).trim()), FileHelper.CHARSET);
+        } catch (IllegalArgumentException e) {
+            throw new HttpError(401, "Malformed credentials");
+        }
+        int colon = decoded.indexOf(':');
+        if (colon < 0) throw new HttpError(401, "Malformed credentials");
+        return new String[] { decoded.substring(0, colon), decoded.substring(colon + 1) };
+    }
+
+    private static void requireMethod(HttpExchange exchange, String method) {
+        if (!exchange.getRequestMethod().equalsIgnoreCase(method)) {
+            exchange.getResponseHeaders().set("Allow", method);
+            throw new HttpError(405, "Method not allowed");
+        }
+    }
+
+    // The single path segment after prefix, or "" for prefix itself
+    private static String subPath(String path, String prefix) {
+        String rest = path.length() > prefix.length() ? path.substring(prefix.length()) : "";
+        if (rest.startsWith("/")) rest = rest.substring(1);
+        if (rest.endsWith("/")) rest = rest.substring(0, rest.length() - 1);
+        if (rest.contains("/")) throw new HttpError(404, "Not found");
+        return rest;
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (bytes.length > MAX_BODY_BYTES) throw new HttpError(413, "Request body too large");
+            return new String(bytes, FileHelper.CHARSET);
+        }
+    }
+
+    private static Map<String, String> queryParams(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) return params;
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), FileHelper.CHARSET);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), FileHelper.CHARSET);
+            params.put(key, value);
+        }
+        return params;
+    }
+
+    private static String required(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isEmpty()) throw new HttpError(400, "Missing parameter: " + name);
+        return value;
+    }
+
+    private static String string(Map<String, Object> body, String field) {
+        Object value = body.get(field);
+        if (!(value instanceof String)) throw new HttpError(400, "Field '" + field + "' must be a string");
+        return (String) value;
+    }
+
+    private static int integer(Map<String, Object> body, String field) {
+        Object value = body.get(field);
+        if (!(value instanceof Long) || (Long) value < Integer.MIN_VALUE || (Long) value > Integer.MAX_VALUE) {
+            throw new HttpError(400, "Field '" + field + "' must be an integer");
+        }
+        return ((Long) value).intValue();
+    }
+
+    private static Map<String, Object> trainJson(Train train) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("trainId", train.getTrainId());
+        json.put("name", train.getName());
+        json.put("source", train.getSource());
+        json.put("destination", train.getDestination());
+        json.put("date", train.getDate());
+        json.put("time", train.getTime());
+        json.put("seats", train.getSeats());
+        json.put("fare", train.getFare());
+        return json;
+    }
+
+    private static Map<String, Object> ticketJson(Ticket ticket) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("pnr", ticket.getPnr());
+        json.put("trainId", ticket.getTrainId());
+        json.put("userEmail", ticket.getUserEmail());
+        json.put("passengerName", ticket.getPassengerName());
+        json.put("passengerAge", ticket.getPassengerAge());
+        json.put("travelClass", ticket.getTravelClass());
+        return json;
+    }
+
+    private static Map<String, Object> waitlistJson(WaitlistEntry entry) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("pnr", entry.getPnr());
+        json.put("trainId", entry.getTrainId());
+        json.put("userEmail", entry.getUserEmail());
+        json.put("passengerName", entry.getPassengerName());
+        json.put("passengerAge", entry.getPassengerAge());
+        json.put("travelClass", entry.getTravelClass());
+        return json;
+    }
+
+    private static List<Object> occupancyJson(List<AdminReport.Occupancy> occupancy) {
+        List<Object> json = new ArrayList<>(occupancy.size());
+        for (AdminReport.Occupancy entry : occupancy) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("trainId", entry.train().getTrainId());
+            item.put("name", entry.train().getName());
+            item.put("booked", entry.booked());
+            item.put("available", entry.train().getSeats());
+            json.add(item);
+        }
+        return json;
+    }
+}
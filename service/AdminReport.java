@@ -0,0 +1,19 @@
+// service/AdminReport.java
+package service;
+
+import model.Train;
+import util.StripedLockManager;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Snapshot for the admin report. occupancy lists every train by ID,
+ * mostBooked the five trains with the most tickets.
+ */
+public record AdminReport(int totalTrains, int totalTickets, int waitlistEntries,
+                          List<Occupancy> occupancy, List<Occupancy> mostBooked,
+                          Map<String, StripedLockManager.KeyStats> lockStats) {
+    public record Occupancy(Train train, int booked) {
+    }
+}
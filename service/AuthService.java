@@ -0,0 +1,78 @@
+// service/AuthService.java
+package service;
+
+import auth.AdminAuth;
+import auth.UserStore;
+import model.User;
+
+import java.util.regex.Pattern;
+
+/**
+ * User registration and login without any console I/O. Failures are
+ * reported with IllegalArgumentException carrying a message fit to show
+ * the user.
+ */
+public class AuthService {
+    private static final Pattern NAME_PATTERN = Pattern.compile("[a-zA-Z ]+");
+    private static final Pattern PHONE_PATTERN = Pattern.compile("^[0-9]{10}$");
+    private static final int MIN_PASSWORD_LENGTH = 6;
+
+    private static AuthService instance;
+
+    private final UserStore userStore = UserStore.getInstance();
+
+    private AuthService() {
+    }
+
+    public static synchronized AuthService getInstance() {
+        if (instance == null) {
+            instance = new AuthService();
+        }
+        return instance;
+    }
+
+    public boolean isEmailRegistered(String email) {
+        return userStore.exists(email);
+    }
+
+    public User register(RegistrationRequest request) {
+        String name = request.name() == null ? "" : request.name().trim();
+        if (name.isEmpty()) throw new IllegalArgumentException("Name cannot be empty!");
+        if (!NAME_PATTERN.matcher(name).matches()) throw new IllegalArgumentException("Name should contain only letters and spaces!");
+        if (!User.isValidAge(request.age())) throw new IllegalArgumentException("Please enter a valid age!");
+        String gender = request.gender() == null ? "" : request.gender().trim().toUpperCase();
+        if (!User.isValidGender(gender)) throw new IllegalArgumentException("Please enter M, F, or O!");
+        String email = request.email() == null ? "" : request.email().trim();
+        if (!User.isValidEmail(email)) throw new IllegalArgumentException("Invalid email format! Please try again.");
+        String phone = request.phone() == null ? "" : request.phone().trim();
+        if (!PHONE_PATTERN.matcher(phone).matches()) throw new IllegalArgumentException("Invalid phone number! Please enter 10 digits.");
+        String password = request.password() == null ? "" : request.password().trim();
+        if (password.length() < MIN_PASSWORD_LENGTH) throw new IllegalArgumentException("Password must be at least 6 characters!");
+
+        User user = new User(name, request.age(), gender, email, phone);
+        String[] userData = {name, String.valueOf(request.age()), gender, email, phone, password};
+        if (!userStore.add(userData)) {
+            throw new IllegalArgumentException("Email already registered! Please use another email.");
+        }
+        return user;
+    }
+
+    public User login(String email, String password) {
+        String[] data = userStore.find(email == null ? "" : email.trim());
+        if (data == null) {
+            throw new IllegalArgumentException("No account found with that email!");
+        }
+        if (password == null || !data[5].trim().equals(password.trim())) {
+            throw new IllegalArgumentException("Incorrect password!");
+        }
+        try {
+            return new User(data[0], Integer.parseInt(data[1]), data[2], data[3], data[4]);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Error processing user data. Skipping corrupted entry.");
+        }
+    }
+
+    public boolean authenticateAdmin(String username, String password) {
+        return AdminAuth.authenticate(username, password);
+    }
+}
@@ -0,0 +1,6 @@
+// service/BookingRequest.java
+package service;
+
+// One passenger to book on one train for the given user
+public record BookingRequest(String userEmail, String trainId, String passengerName, int passengerAge, String travelClass) {
+}
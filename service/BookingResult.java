@@ -0,0 +1,25 @@
+// service/BookingResult.java
+package service;
+
+import model.Ticket;
+import model.Train;
+import model.WaitlistEntry;
+
+// Either a confirmed ticket, or a waitlist entry with its 1-based position
+public record BookingResult(Train train, Ticket ticket, WaitlistEntry waitlistEntry, int waitlistPosition) {
+    public static BookingResult confirmed(Train train, Ticket ticket) {
+        return new BookingResult(train, ticket, null, 0);
+    }
+
+    public static BookingResult waitlisted(Train train, WaitlistEntry entry, int position) {
+        return new BookingResult(train, null, entry, position);
+    }
+
+    public boolean isConfirmed() {
+        return ticket != null;
+    }
+
+    public String pnr() {
+        return ticket != null ? ticket.getPnr() : waitlistEntry.getPnr();
+    }
+}
@@ -0,0 +1,227 @@
+// service/BookingService.java
+package service;
+
+import dao.PnrAllocator;
+import dao.SeatInventory;
+import dao.TicketStore;
+import dao.TrainRepository;
+import dao.WaitlistPromoter;
+import dao.WaitlistStore;
+import events.EventManager;
+import events.RailwayEvent;
+import events.TicketBooked;
+import events.TicketCancelled;
+import events.WaitlistPromoted;
+import model.Ticket;
+import model.Train;
+import model.WaitlistEntry;
+import util.StripedLockManager;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Booking operations without any console I/O, safe to call from many
+ * threads. Invalid input is rejected with IllegalArgumentException carrying
+ * a message fit to show the user.
+ */
+@SuppressWarnings("try") // StripedLockManager.Held is only ever closed
+public class BookingService {
+    private static final Pattern PNR_PATTERN = Pattern.compile("^PNR[0-9]{5}$");
+    private static final Pattern NAME_PATTERN = Pattern.compile("[a-zA-Z ]+");
+    private static final Pattern CLASS_PATTERN = Pattern.compile("^(General|Sleeper|AC)$", Pattern.CASE_INSENSITIVE);
+
+    private static BookingService instance;
+
+    private final TrainRepository trains = TrainRepository.getInstance();
+    private final TicketStore ticketStore = TicketStore.getInstance();
+    private final WaitlistStore waitlistStore = WaitlistStore.getInstance();
+    private final WaitlistPromoter waitlistPromoter = WaitlistPromoter.getInstance();
+    private final PnrAllocator pnrAllocator = PnrAllocator.getInstance();
+    private final SeatInventory seatInventory = SeatInventory.getInstance();
+    private final StripedLockManager trainLocks = StripedLockManager.getInstance();
+
+    private BookingService() {
+    }
+
+    public static synchronized BookingService getInstance() {
+        if (instance == null) {
+            instance = new BookingService();
+        }
+        return instance;
+    }
+
+    public static boolean isValidPnr(String pnr) {
+        return pnr != null && PNR_PATTERN.matcher(pnr).matches();
+    }
+
+    public static boolean isValidPassengerName(String name) {
+        return name != null && !name.isEmpty() && NAME_PATTERN.matcher(name).matches();
+    }
+
+    public static boolean isValidTravelClass(String travelClass) {
+        return travelClass != null && CLASS_PATTERN.matcher(travelClass).matches();
+    }
+
+    // Confirms a seat if one is free, otherwise puts the passenger on the waitlist
+    public BookingResult book(BookingRequest request) {
+        Train train = trains.findById(request.trainId());
+        if (train == null) {
+            throw new IllegalArgumentException("Train not found. Please enter a valid Train ID.");
+        }
+        String name = request.passengerName() == null ? null : request.passengerName().trim();
+        if (!isValidPassengerName(name)) {
+            throw new IllegalArgumentException("Invalid name! Only letters and spaces allowed.");
+        }
+        if (request.passengerAge() <= 0 || request.passengerAge() > 120) {
+            throw new IllegalArgumentException("Please enter a valid age (1-120).");
+        }
+        String travelClass = request.travelClass() == null ? null : request.travelClass().trim();
+        if (!isValidTravelClass(travelClass)) {
+            throw new IllegalArgumentException("Invalid class! Please choose General, Sleeper, or AC.");
+        }
+
+        String trainId = train.getTrainId();
+        BookingResult result;
+        try (StripedLockManager.Held held = trainLocks.lock(trainId)) {
+            if (seatInventory.tryReserve(trainId)) {
+                try {
+                    Ticket ticket = new Ticket(generatePnr(), trainId, request.userEmail(), name,
+                            request.passengerAge(), travelClass);
+                    ticketStore.append(ticket);
+                    result = BookingResult.confirmed(train, ticket);
+                } catch (RuntimeException e) {
+                    seatInventory.release(trainId);
+                    throw e;
+                }
+            } else {
+                WaitlistEntry entry = new WaitlistEntry(generatePnr(), trainId, request.userEmail(), name,
+                        request.passengerAge(), travelClass);
+                result = BookingResult.waitlisted(train, entry, waitlistStore.enqueue(entry));
+            }
+        }
+
+        EventManager events = EventManager.getInstance();
+        if (result.isConfirmed() && events.hasSubscribers(RailwayEvent.TICKET_BOOKED)) {
+            events.dispatchEvent(RailwayEvent.TICKET_BOOKED, new TicketBooked(result.ticket(), train));
+        }
+        return result;
+    }
+
+    /**
+     * Cancels the user's ticket and offers the freed seat to the waitlist
+     * before any other booking on the train can take it. Returns null if the
+     * PNR is not booked by that user.
+     */
+    public CancellationResult cancel(String pnr, String userEmail) {
+        if (!isValidPnr(pnr)) {
+            throw new IllegalArgumentException("Invalid PNR format! PNR should be in format PNR12345");
+        }
+        Ticket booked = ticketStore.findByPnr(pnr);
+        if (booked == null) return null;
+        String trainId = booked.getTrainId();
+
+        Ticket cancelled;
+        List<WaitlistPromoted> promotions;
+        try (StripedLockManager.Held held = trainLocks.lock(trainId)) {
+            cancelled = ticketStore.cancel(pnr, userEmail);
+            if (cancelled == null) return null;
+            seatInventory.release(trainId);
+            promotions = confirmQuietly(trainId);
+        }
+
+        // Dispatched after the unlock, as in book(), so a full listener buffer never holds the train lock
+        EventManager events = EventManager.getInstance();
+        if (events.hasSubscribers(RailwayEvent.TICKET_CANCELLED)) {
+            events.dispatchEvent(RailwayEvent.TICKET_CANCELLED, new TicketCancelled(cancelled, userEmail));
+        }
+        waitlistPromoter.publish(promotions);
+        List<Ticket> promoted = new ArrayList<>(promotions.size());
+        for (WaitlistPromoted promotion : promotions) {
+            promoted.add(promotion.ticket());
+        }
+        return new CancellationResult(cancelled, promoted);
+    }
+
+    // The cancellation stands even if the waitlist cannot be processed
+    private List<WaitlistPromoted> confirmQuietly(String trainId) {
+        try {
+            return waitlistPromoter.confirm(trainId);
+        } catch (RuntimeException e) {
+            System.err.println("Error processing waitlist for " + trainId + ": " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Status of a PNR booked by userEmail. Another user's booking is reported
+     * as NOT_FOUND, so a PNR reissued after the number space wraps never shows
+     * the new passenger's ticket to whoever held the number before.
+     */
+    public PnrStatus status(String pnr, String userEmail) {
+        if (!isValidPnr(pnr)) {
+            throw new IllegalArgumentException("Invalid PNR format! PNR should be in format PNR12345");
+        }
+        Ticket ticket = ticketStore.findByPnr(pnr);
+        if (ticket != null && ticket.getUserEmail().equalsIgnoreCase(userEmail)) {
+            return new PnrStatus(pnr, PnrStatus.State.CONFIRMED, ticket, null, 0);
+        }
+        WaitlistEntry entry = ticket == null ? waitlistStore.find(pnr) : null;
+        int position = entry == null ? 0 : waitlistStore.positionOf(pnr);
+        if (entry != null && position > 0 && entry.getUserEmail().equalsIgnoreCase(userEmail)) {
+            return new PnrStatus(pnr, PnrStatus.State.WAITLISTED, null, entry, position);
+        }
+        return new PnrStatus(pnr, PnrStatus.State.NOT_FOUND, null, null, 0);
+    }
+
+    public List<Ticket> ticketsOf(String userEmail) {
+        return ticketStore.findByUser(userEmail);
+    }
+
+    public List<Ticket> allTickets() {
+        return ticketStore.getAll();
+    }
+
+    public int waitlistSize(String trainId) {
+        return waitlistStore.size(trainId);
+    }
+
+    // Fills free seats on every train from its waitlist; confirmed tickets keyed by train ID
+    public Map<String, List<Ticket>> rebalanceWaitlists() {
+        return waitlistPromoter.rebalanceAll();
+    }
+
+    public AdminReport report() {
+        List<Train> allTrains = trains.findAll();
+        List<Ticket> tickets = ticketStore.getAll();
+
+        Map<String, Integer> bookedSeatsPerTrain = new HashMap<>();
+        for (Ticket ticket : tickets) {
+            bookedSeatsPerTrain.merge(ticket.getTrainId(), 1, Integer::sum);
+        }
+
+        List<AdminReport.Occupancy> occupancy = new ArrayList<>(allTrains.size());
+        for (Train train : allTrains) {
+            occupancy.add(new AdminReport.Occupancy(train, bookedSeatsPerTrain.getOrDefault(train.getTrainId(), 0)));
+        }
+
+        List<AdminReport.Occupancy> mostBooked = new ArrayList<>();
+        bookedSeatsPerTrain.entrySet().stream()
+            .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+            .limit(5)
+            .forEach(entry -> {
+                Train train = trains.findById(entry.getKey());
+                if (train != null) {
+                    mostBooked.add(new AdminReport.Occupancy(train, entry.getValue()));
+                }
+            });
+
+        return new AdminReport(allTrains.size(), tickets.size(), waitlistStore.size(),
+                occupancy, mostBooked, trainLocks.getStats());
+    }
+
+    private String generatePnr() {
+        // Waitlisted passengers hold their PNR too, so both must be free
+        return pnrAllocator.allocate(pnr -> ticketStore.containsPnr(pnr) || waitlistStore.contains(pnr));
+    }
+}
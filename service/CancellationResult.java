@@ -0,0 +1,10 @@
+// service/CancellationResult.java
+package service;
+
+import model.Ticket;
+
+import java.util.List;
+
+// The cancelled ticket and the waitlisted passengers confirmed into the freed seat
+public record CancellationResult(Ticket cancelled, List<Ticket> promoted) {
+}
@@ -0,0 +1,10 @@
+// service/PnrStatus.java
+package service;
+
+import model.Ticket;
+import model.WaitlistEntry;
+
+// Current state of a PNR; waitlistPosition is 1-based and only set while WAITLISTED
+public record PnrStatus(String pnr, State state, Ticket ticket, WaitlistEntry waitlistEntry, int waitlistPosition) {
+    public enum State { CONFIRMED, WAITLISTED, NOT_FOUND }
+}
@@ -0,0 +1,5 @@
+// service/RegistrationRequest.java
+package service;
+
+public record RegistrationRequest(String name, int age, String gender, String email, String phone, String password) {
+}
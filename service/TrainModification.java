@@ -0,0 +1,11 @@
+// service/TrainModification.java
+package service;
+
+import model.Ticket;
+import model.Train;
+
+import java.util.List;
+
+// The train as saved and any waitlisted passengers confirmed into added seats
+public record TrainModification(Train train, List<Ticket> promoted) {
+}
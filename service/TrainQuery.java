@@ -0,0 +1,22 @@
+// service/TrainQuery.java
+package service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// The ways trains can be searched; a new kind also needs a case in TrainService.search
+public sealed interface TrainQuery {
+    record ByRoute(String source, String destination) implements TrainQuery {
+    }
+
+    // Departures between the two dates, inclusive
+    record ByDate(LocalDate from, LocalDate to) implements TrainQuery {
+    }
+
+    // An exact train ID first, then trains whose name matches, best matches first
+    record ByIdOrName(String text) implements TrainQuery {
+    }
+
+    record NextDepartures(LocalDateTime after, int limit) implements TrainQuery {
+    }
+}
@@ -0,0 +1,175 @@
+// service/TrainService.java
+package service;
+
+import dao.SeatInventory;
+import dao.TrainRepository;
+import dao.WaitlistPromoter;
+import events.EventManager;
+import events.RailwayEvent;
+import events.TrainChanged;
+import model.Ticket;
+import model.Train;
+import util.StripedLockManager;
+
+import java.util.*;
+
+/**
+ * Timetable search and admin changes to trains without any console I/O.
+ * Invalid input is rejected with IllegalArgumentException, conflicts with
+ * IllegalStateException; both carry a message fit to show the user.
+ */
+@SuppressWarnings("try") // StripedLockManager.Held is only ever closed
+public class TrainService {
+    private static TrainService instance;
+
+    private final TrainRepository repository = TrainRepository.getInstance();
+    private final SeatInventory seatInventory = SeatInventory.getInstance();
+    private final StripedLockManager trainLocks = StripedLockManager.getInstance();
+    private final WaitlistPromoter waitlistPromoter = WaitlistPromoter.getInstance();
+
+    private TrainService() {
+    }
+
+    public static synchronized TrainService getInstance() {
+        if (instance == null) {
+            instance = new TrainService();
+        }
+        return instance;
+    }
+
+    public Train findTrain(String trainId) {
+        return repository.findById(trainId);
+    }
+
+    public List<Train> allTrains() {
+        return repository.findAll();
+    }
+
+    public boolean hasTrains() {
+        return !repository.isEmpty();
+    }
+
+    // Pattern switches over the sealed TrainQuery need Java 21, so the cases are matched one by one
+    public List<Train> search(TrainQuery query) {
+        if (query == null) {
+            throw new IllegalArgumentException("Search query is required");
+        }
+        if (query instanceof TrainQuery.ByRoute route) {
+            return repository.findByRoute(route.source(), route.destination());
+        }
+        if (query instanceof TrainQuery.ByDate dates) {
+            return repository.findByDateRange(dates.from(), dates.to() == null ? dates.from() : dates.to());
+        }
+        if (query instanceof TrainQuery.ByIdOrName byIdOrName) {
+            String text = byIdOrName.text();
+            List<Train> results = new ArrayList<>();
+            Train byId = repository.findById(text);
+            if (byId != null) results.add(byId);
+            for (Train train : repository.searchByName(text)) {
+                if (byId != null && train.getTrainId().equals(byId.getTrainId())) continue;
+                results.add(train);
+            }
+            return results;
+        }
+        if (query instanceof TrainQuery.NextDepartures next) {
+            if (next.limit() <= 0) throw new IllegalArgumentException("Limit must be positive");
+            return repository.findNextDepartures(next.after(), next.limit());
+        }
+        throw new IllegalArgumentException("Unsupported search: " + query.getClass().getSimpleName());
+    }
+
+    public Train addTrain(TrainSpec spec) {
+        if (spec.source() != null && spec.source().trim().equalsIgnoreCase(spec.destination() == null ? "" : spec.destination().trim())) {
+            throw new IllegalArgumentException("Source and destination cannot be same!");
+        }
+        if (!Train.isValidSeats(spec.seats())) {
+            throw new IllegalArgumentException("Invalid seats! Must be 1-1000");
+        }
+        Train train = new Train(spec.trainId() == null ? null : spec.trainId().trim(), spec.name(),
+                spec.source(), spec.destination(), spec.date(), spec.time(), spec.seats(), spec.fare());
+
+        try (StripedLockManager.Held held = trainLocks.lock(train.getTrainId())) {
+            if (repository.exists(train.getTrainId())) {
+                throw new IllegalStateException("Train ID already exists!");
+            }
+            repository.add(train);
+        }
+        EventManager.getInstance().dispatchEvent(RailwayEvent.TRAIN_ADDED, new TrainChanged(train.getTrainId(), train));
+        return train;
+    }
+
+    /**
+     * Applies the non-null fields of the update to the train as it stands
+     * under its lock, then confirms waitlisted passengers into any added
+     * seats. Returns null if the train does not exist.
+     */
+    public TrainModification modifyTrain(String trainId, TrainUpdate update) {
+        Train train;
+        try (StripedLockManager.Held held = trainLocks.lock(trainId)) {
+            // Read inside the lock so concurrent bookings' seat counts are not written back stale
+            train = repository.findById(trainId);
+            if (train == null) return null;
+            applyUpdate(train, update);
+            if (!repository.update(train)) return null;
+            if (update.seats() != null) seatInventory.reset(train.getTrainId());
+        }
+        // Added capacity goes to waiting passengers first
+        List<Ticket> promoted = update.seats() == null ? new ArrayList<>() : waitlistPromoter.promote(train.getTrainId());
+        EventManager.getInstance().dispatchEvent(RailwayEvent.TRAIN_MODIFIED, new TrainChanged(train.getTrainId(), train));
+        return new TrainModification(train, promoted);
+    }
+
+    private static void applyUpdate(Train train, TrainUpdate update) {
+        if (update.name() != null) {
+            if (!Train.isValidName(update.name())) throw new IllegalArgumentException("Invalid train name! Must be 2-100 characters");
+            train.setTrainName(update.name().trim());
+        }
+        String source = update.source() == null ? train.getSource() : update.source().trim();
+        String destination = update.destination() == null ? train.getDestination() : update.destination().trim();
+        if (!Train.isValidStation(source) || !Train.isValidStation(destination)) {
+            throw new IllegalArgumentException("Invalid station name! Must be 2-50 characters");
+        }
+        if (source.equalsIgnoreCase(destination)) {
+            throw new IllegalArgumentException("Source and destination cannot be the same!");
+        }
+        train.setSource(source);
+        train.setDestination(destination);
+        if (update.date() != null) {
+            if (!Train.isValidDate(update.date())) throw new IllegalArgumentException("Invalid date! Must be YYYY-MM-DD and not in past");
+            train.setDate(update.date());
+        }
+        if (update.time() != null) {
+            if (!Train.isValidTime(update.time())) throw new IllegalArgumentException("Invalid time! Must be HH:MM in 24-hour format");
+            train.setTime(update.time());
+        }
+        if (update.seats() != null) {
+            if (!Train.isValidSeats(update.seats())) throw new IllegalArgumentException("Invalid seat count (1-1000)!");
+            train.setSeats(update.seats());
+        }
+        if (update.fare() != null) {
+            if (!Train.isValidFare(update.fare())) throw new IllegalArgumentException("Invalid fare amount (1-100000)!");
+            train.setFare(update.fare());
+        }
+    }
+
+    // False if there was no such train
+    public boolean deleteTrain(String trainId) {
+        String id = trainId.trim().toUpperCase();
+        boolean removed;
+        try (StripedLockManager.Held held = trainLocks.lock(id)) {
+            removed = repository.remove(id);
+            seatInventory.reset(id);
+        }
+        if (removed) {
+            EventManager.getInstance().dispatchEvent(RailwayEvent.TRAIN_DELETED, new TrainChanged(id, null));
+        }
+        return removed;
+    }
+
+    public void updateTrainSeats(String trainId, int newSeats) {
+        try (StripedLockManager.Held held = trainLocks.lock(trainId)) {
+            repository.updateSeats(trainId, newSeats);
+            seatInventory.reset(trainId);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+// service/TrainSpec.java
+package service;
+
+// Everything needed to add a train
+public record TrainSpec(String trainId, String name, String source, String destination,
+                        String date, String time, int seats, double fare) {
+}
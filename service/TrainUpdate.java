@@ -0,0 +1,7 @@
+// service/TrainUpdate.java
+package service;
+
+// Changes to a train; null fields keep their current value
+public record TrainUpdate(String name, String source, String destination, String date, String time,
+                          Integer seats, Double fare) {
+}
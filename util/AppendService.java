@@ -0,0 +1,225 @@
+package util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps one open append channel per file and coalesces concurrent appends.
+ * Lines queued while another thread is writing are written together with a
+ * single channel write once that write finishes. Every append returns only
+ * after its line has reached the file.
+ *
+ * Appenders wait on a ReentrantLock condition rather than a monitor, so a
+ * virtual thread waiting for another's write does not pin its carrier.
+ */
+public class AppendService {
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    private static AppendService instance;
+
+    private final Map<String, Appender> appenders = new ConcurrentHashMap<>();
+
+    private AppendService() {
+        Shutdown.register(Shutdown.Stage.APPENDERS, this::closeAll);
+    }
+
+    public static synchronized AppendService getInstance() {
+        if (instance == null) {
+            instance = new AppendService();
+        }
+        return instance;
+    }
+
+    public void append(String path, String line) throws IOException {
+        // A closed appender rejects the line; retry on the fresh one that replaces it
+        while (!appenderFor(path).append(line)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    // Writes out anything still queued for this path, so readers see every append
+    public void flush(String path) throws IOException {
+        Appender appender = appenders.get(key(path));
+        if (appender != null) {
+            appender.flush();
+        }
+    }
+
+    // Flushes and closes the pooled channel, e.g. before the file is replaced
+    public void close(String path) throws IOException {
+        Appender appender = appenders.remove(key(path));
+        if (appender != null) {
+            appender.close();
+        }
+    }
+
+    private void closeAll() {
+        for (String path : appenders.keySet()) {
+            try {
+                close(path);
+            } catch (IOException e) {
+                System.err.println("Error closing " + path + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private Appender appenderFor(String path) {
+        return appenders.computeIfAbsent(key(path), k -> new Appender(new File(k)));
+    }
+
+    private static String key(String path) {
+        return new File(path).getAbsolutePath();
+    }
+
+    // Lines that go to the file with one write; every caller waits for the same outcome
+    private static final class Batch {
+        private final StringBuilder lines = new StringBuilder();
+        private boolean done;
+        private IOException failure;
+    }
+
+    private final class Appender {
+        private final File file;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition idle = lock.newCondition();
+        private FileChannel channel;
+        private Batch pending = new Batch();
+        private boolean writing;
+        private boolean closed;
+
+        Appender(File file) {
+            this.file = file;
+        }
+
+        boolean append(String line) throws IOException {
+            Batch batch;
+            lock.lock();
+            try {
+                if (closed) {
+                    return false;
+                }
+                pending.lines.append(line).append(LINE_SEPARATOR);
+                batch = pending;
+            } finally {
+                lock.unlock();
+            }
+            IOException failure = await(batch);
+            if (failure != null) {
+                throw new IOException("Failed to append to " + file, failure);
+            }
+            return true;
+        }
+
+        // Waits for queued lines; their writers hear about any failure, not the reader
+        void flush() {
+            Batch batch;
+            lock.lock();
+            try {
+                batch = pending;
+            } finally {
+                lock.unlock();
+            }
+            await(batch);
+        }
+
+        void close() throws IOException {
+            lock.lock();
+            try {
+                closed = true;
+            } finally {
+                lock.unlock();
+            }
+            flush();
+            lock.lock();
+            try {
+                while (writing) {
+                    idle.awaitUninterruptibly();
+                }
+                if (channel != null) {
+                    channel.close();
+                    channel = null;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Returns once the batch has been written, with the exception if its
+         * write failed. Whoever finds no write in progress writes everything
+         * queued so far. A failed batch is dropped rather than retried, so a
+         * caller that got an exception knows its line is not in the file.
+         */
+        private IOException await(Batch batch) {
+            lock.lock();
+            try {
+                while (!batch.done) {
+                    if (writing) {
+                        idle.awaitUninterruptibly();
+                        continue;
+                    }
+                    writing = true;
+                    Batch current = pending;
+                    pending = new Batch();
+                    boolean success = false;
+                    IOException failure = null;
+                    lock.unlock();
+                    try {
+                        if (current.lines.length() > 0) {
+                            write(current.lines.toString());
+                        }
+                        success = true;
+                    } catch (IOException e) {
+                        failure = e;
+                    } finally {
+                        lock.lock();
+                        if (!success && failure == null) {
+                            failure = new IOException("Write to " + file + " did not complete");
+                        }
+                        current.failure = failure;
+                        current.done = true;
+                        writing = false;
+                        idle.signalAll();
+                    }
+                }
+                return batch.failure;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Only the current writer (writing == true) gets here
+        private void write(String batch) throws IOException {
+            if (channel == null) {
+                File parent = file.getParentFile();
+                if (parent != null && !parent.exists() && !parent.mkdirs()) {
+                    throw new IOException("Failed to create directory: " + parent);
+                }
+                channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            long start = channel.size();
+            ByteBuffer buffer = ByteBuffer.wrap(batch.getBytes(FileHelper.CHARSET));
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } catch (IOException e) {
+                // Cut off a partial write so the file ends on a whole line again
+                try (FileChannel failed = channel) {
+                    failed.truncate(start);
+                } catch (IOException ignored) {
+                    // Best effort; the next write reopens the file
+                }
+                channel = null;
+                throw e;
+            }
+        }
+    }
+}
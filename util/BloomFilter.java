@@ -0,0 +1,67 @@
+package util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size Bloom filter over strings. mightContain never returns a false
+ * negative, so a false answer proves the value was never added.
+ * Safe for concurrent add and mightContain.
+ */
+public class BloomFilter {
+    private final AtomicLongArray bits;
+    private final int bitCount;
+    private final int hashCount;
+
+    /**
+     * Sizes the filter for the expected number of values at roughly a 1%
+     * false positive rate (about 10 bits and 7 hash functions per value).
+     */
+    public BloomFilter(int expectedInsertions) {
+        int expected = Math.max(expectedInsertions, 1024);
+        long size = Math.min((long) expected * 10, Integer.MAX_VALUE - 63L);
+        this.bitCount = (int) size;
+        this.bits = new AtomicLongArray((bitCount + 63) / 64);
+        this.hashCount = 7;
+    }
+
+    public void add(String value) {
+        int h1 = value.hashCode();
+        int h2 = mix(h1);
+        for (int i = 0; i < hashCount; i++) {
+            int bit = index(h1 + i * h2);
+            int word = bit >>> 6;
+            long mask = 1L << bit;
+            long current;
+            do {
+                current = bits.get(word);
+                if ((current & mask) != 0) break;
+            } while (!bits.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    public boolean mightContain(String value) {
+        int h1 = value.hashCode();
+        int h2 = mix(h1);
+        for (int i = 0; i < hashCount; i++) {
+            int bit = index(h1 + i * h2);
+            if ((bits.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int index(int hash) {
+        return (hash & Integer.MAX_VALUE) % bitCount;
+    }
+
+    // Second hash for double hashing (murmur3 finalizer), forced odd
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h | 1;
+    }
+}
@@ -1,12 +1,39 @@
 package util;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class FileHelper {
+    // All data files are read and written as UTF-8, independent of the platform default
+    public static final Charset CHARSET = StandardCharsets.UTF_8;
+    private static final Map<String, CommitSlot> COMMIT_SLOTS = new ConcurrentHashMap<>();
+
     public static List<String> readFile(String path) {
-        List<String> list = new ArrayList<>();
+        return lines(path).collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    /**
+     * Streams the non-blank lines of a file lazily from a memory-mapped view.
+     * Lines are decoded one at a time as the stream is consumed, so callers that
+     * stop at the first match (findFirst, anyMatch) never decode the rest of the
+     * file. A missing file is created empty, as with readFile.
+     */
+    public static Stream<String> lines(String path) {
         try {
+            AppendService.getInstance().flush(path);
             File file = new File(path);
             if (!file.exists()) {
                 if (!file.getParentFile().exists() && !file.getParentFile().mkdirs()) {
@@ -15,79 +42,231 @@ public class FileHelper {
                 if (!file.createNewFile()) {
                     throw new IOException("Failed to create file: " + path);
                 }
-                return list;
+                return Stream.empty();
             }
 
-            try (BufferedReader br = new BufferedReader(new FileReader(path))) {
-                String line;
-                while ((line = br.readLine()) != null) {
-                    if (!line.trim().isEmpty()) {
-                        list.add(line);
-                    }
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size == 0) {
+                    return Stream.empty();
+                }
+                if (size > Integer.MAX_VALUE) {
+                    throw new IOException("File too large to map: " + path);
                 }
+                // The mapping stays valid after the channel is closed
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                return StreamSupport.stream(new MappedLineSpliterator(buffer), false);
             }
         } catch (IOException e) {
             System.err.println("Error reading file: " + path);
             e.printStackTrace();
+            return Stream.empty();
         }
-        return list;
     }
 
-    public static void appendToFile(String path, String content) {
-        if (content == null || content.trim().isEmpty()) {
-            System.err.println("Warning: Attempted to write empty content to file: " + path);
-            return;
+    private static class MappedLineSpliterator extends Spliterators.AbstractSpliterator<String> {
+        private final MappedByteBuffer buffer;
+        private int position;
+
+        MappedLineSpliterator(MappedByteBuffer buffer) {
+            super(Long.MAX_VALUE, ORDERED | NONNULL);
+            this.buffer = buffer;
         }
 
-        try {
-            File file = new File(path);
-            if (!file.exists()) {
-                if (!file.getParentFile().exists() && !file.getParentFile().mkdirs()) {
-                    throw new IOException("Failed to create directory: " + file.getParentFile());
-                }
-                if (!file.createNewFile()) {
-                    throw new IOException("Failed to create file: " + path);
-                }
+        @Override
+        public boolean tryAdvance(Consumer<? super String> action) {
+            int limit = buffer.limit();
+            while (position < limit) {
+                int start = position;
+                int end = start;
+                while (end < limit && buffer.get(end) != '\n') end++;
+                position = end + 1;
+                if (end > start && buffer.get(end - 1) == '\r') end--;
+                if (isBlank(start, end)) continue;
+
+                byte[] bytes = new byte[end - start];
+                buffer.get(start, bytes);
+                action.accept(new String(bytes, CHARSET));
+                return true;
             }
+            return false;
+        }
 
-            try (BufferedWriter bw = new BufferedWriter(new FileWriter(path, true))) {
-                bw.write(content);
-                bw.newLine();
+        private boolean isBlank(int start, int end) {
+            for (int i = start; i < end; i++) {
+                byte b = buffer.get(i);
+                if (b != ' ' && b != '\t') return false;
             }
+            return true;
+        }
+    }
+
+    public static void appendToFile(String path, String content) {
+        try {
+            appendOrThrow(path, content);
         } catch (IOException e) {
             System.err.println("Error writing to file: " + path);
             e.printStackTrace();
         }
     }
 
+    /**
+     * Appends like appendToFile but lets a failed write reach the caller. When
+     * it throws, none of the content is in the file, so callers that track
+     * file offsets can keep them exact.
+     */
+    public static void appendOrThrow(String path, String content) throws IOException {
+        if (content == null || content.trim().isEmpty()) {
+            System.err.println("Warning: Attempted to write empty content to file: " + path);
+            return;
+        }
+        AppendService.getInstance().append(path, content);
+    }
+
+    // Appends all lines with a single write, so a batch lands together
+    public static void appendLines(String path, List<String> lines) {
+        if (lines == null || lines.isEmpty()) return;
+        appendToFile(path, String.join(System.lineSeparator(), lines));
+    }
+
+    public static void appendLinesOrThrow(String path, List<String> lines) throws IOException {
+        if (lines == null || lines.isEmpty()) return;
+        appendOrThrow(path, String.join(System.lineSeparator(), lines));
+    }
+
     public static void overwriteFile(String path, List<String> contents) {
+        try {
+            overwriteOrThrow(path, contents);
+        } catch (IOException e) {
+            System.err.println("Error overwriting file: " + path);
+            e.printStackTrace();
+        }
+    }
+
+    // Overwrites like overwriteFile but lets a failure reach the caller; the old file is then untouched
+    public static void overwriteOrThrow(String path, List<String> contents) throws IOException {
         if (contents == null) {
             System.err.println("Error: Null content list provided for file: " + path);
             return;
         }
 
+        File file = new File(path);
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (!parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Failed to create directory: " + parent);
+        }
+        AppendService.getInstance().close(path);
         try {
-            File file = new File(path);
-            if (!file.exists()) {
-                if (!file.getParentFile().exists() && !file.getParentFile().mkdirs()) {
-                    throw new IOException("Failed to create directory: " + file.getParentFile());
+            COMMIT_SLOTS.computeIfAbsent(file.getAbsolutePath(), CommitSlot::new)
+                    .commit(new ArrayList<>(contents));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while overwriting file: " + path);
+        }
+    }
+
+    /**
+     * Replaces a file atomically: the contents go to a sibling temp file which
+     * is forced to disk and then renamed over the target, so a crash leaves
+     * either the old or the new file, never a truncated one.
+     */
+    private static void writeAtomically(Path target, List<String> contents) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        String newLine = System.lineSeparator();
+        for (String line : contents) {
+            if (line != null) {
+                sb.append(line).append(newLine);
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(sb.toString().getBytes(CHARSET));
+
+        Path dir = target.getParent();
+        Path temp = Files.createTempFile(dir, "." + target.getFileName(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
                 }
-                if (!file.createNewFile()) {
-                    throw new IOException("Failed to create file: " + path);
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        forceDirectory(dir);
+    }
+
+    // Persists the rename itself; not supported on every platform, so best effort
+    private static void forceDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Directory fsync is unavailable here (e.g. Windows)
+        }
+    }
+
+    /**
+     * Group commit for overwrites of one path. Callers queue their contents;
+     * whoever finds no write in progress becomes the leader and writes the
+     * newest queued contents, which supersedes every older request, so one
+     * fsync and rename completes all callers waiting at that point.
+     */
+    private static class CommitSlot {
+        private final Path target;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition done = lock.newCondition();
+        private long submitted;
+        private long committed;
+        private boolean writing;
+        private List<String> pending;
+
+        CommitSlot(String path) {
+            this.target = Paths.get(path);
+        }
+
+        void commit(List<String> contents) throws IOException, InterruptedException {
+            List<String> batch;
+            long upTo;
+            lock.lock();
+            try {
+                long ticket = ++submitted;
+                pending = contents;
+                while (writing && committed < ticket) {
+                    done.await();
                 }
+                if (committed >= ticket) {
+                    return;
+                }
+                writing = true;
+                batch = pending;
+                upTo = submitted;
+                pending = null;
+            } finally {
+                lock.unlock();
             }
 
-            try (BufferedWriter bw = new BufferedWriter(new FileWriter(path))) {
-                for (String line : contents) {
-                    if (line != null) {
-                        bw.write(line);
-                        bw.newLine();
+            boolean success = false;
+            try {
+                writeAtomically(target, batch);
+                success = true;
+            } finally {
+                lock.lock();
+                try {
+                    writing = false;
+                    if (success) {
+                        committed = upTo;
+                    } else if (pending == null) {
+                        pending = batch;
                     }
+                    done.signalAll();
+                } finally {
+                    lock.unlock();
                 }
             }
-        } catch (IOException e) {
-            System.err.println("Error overwriting file: " + path);
-            e.printStackTrace();
         }
     }
 
@@ -0,0 +1,403 @@
+package util;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Append-only text log written by a background thread in batches.
+ *
+ * Lines go to an active segment (the configured path). When it would exceed
+ * the size limit, or the first line of a new day arrives, the segment is
+ * closed: it is compressed into name-yyyyMMdd-HHmmss.log.gz next to it and
+ * the active file starts over. Every line must start with a
+ * "[yyyy-MM-dd HH:mm:ss]" timestamp.
+ *
+ * Lines are written in the order they are queued. A caller that stamps a line
+ * before queueing it (e.g. with the time an event was raised rather than
+ * delivered) may queue lines slightly out of time order; a late line never
+ * starts a new day, and readers that pick blocks by time widen their bounds by
+ * MAX_DISORDER_SECONDS.
+ *
+ * Each segment has a sparse timestamp index with one mark per INDEX_INTERVAL
+ * lines. For the active segment (path.idx) a mark is the byte offset of the
+ * line. Closed segments are written as one gzip member per block of
+ * INDEX_INTERVAL lines, so a mark in name-....idx is the offset of a member
+ * that can be inflated on its own. Closed indexes also start with a summary
+ * line holding the first and last timestamp and the line count, and when the
+ * log has a key function each closed block lists the distinct keys of its
+ * lines so readers can skip blocks that cannot match:
+ *
+ *   S,firstEpochSecond,lastEpochSecond,lines
+ *   B,epochSecond,offset[,key;key...]
+ *
+ * A rotation writes the compressed segment to a .tmp file and its index
+ * first, then removes the active segment and moves the compressed one into
+ * place last, so a listed segment always has its index. A .tmp left by a
+ * crash is finished or discarded on the next start. Readers that hold
+ * readLock() never see the same lines in both the active and a closed
+ * segment, or in neither.
+ */
+public class RotatingLog {
+    public static final int INDEX_INTERVAL = 64;
+    public static final long MAX_DISORDER_SECONDS = 300;
+    public static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter SEGMENT_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final int MAX_BATCH = 512;
+
+    private static final class Entry {
+        private final long epochSecond;
+        private final String line;
+
+        Entry(long epochSecond, String line) {
+            this.epochSecond = epochSecond;
+            this.line = line;
+        }
+    }
+
+    private final File active;
+    private final File activeIndex;
+    private final long maxSegmentBytes;
+    private final Function<String, String> keyOf;
+    private final BlockingQueue<Entry> queue;
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong lost = new AtomicLong();
+    private final ReentrantReadWriteLock segments = new ReentrantReadWriteLock();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    // Owned by the writer thread
+    private FileChannel channel;
+    private long pendingLines;
+    private long activeSize;
+    private long activeLines;
+    private LocalDate activeDay;
+
+    public RotatingLog(String path, long maxSegmentBytes, int queueCapacity) {
+        this(path, maxSegmentBytes, queueCapacity, null);
+    }
+
+    // keyOf maps a line to its index key, or null for none; keys must not contain ',' or ';'
+    public RotatingLog(String path, long maxSegmentBytes, int queueCapacity, Function<String, String> keyOf) {
+        this.active = new File(path);
+        this.activeIndex = new File(path + ".idx");
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.keyOf = keyOf;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.writer = Threads.start("log-writer-" + active.getName(), this::run);
+        Shutdown.register(Shutdown.Stage.LOGS, this::close);
+    }
+
+    /**
+     * Queues a line that starts with the given timestamp. Blocks only while
+     * the queue is full.
+     */
+    public void append(LocalDateTime timestamp, String line) {
+        long epochSecond = timestamp.atZone(ZoneId.systemDefault()).toEpochSecond();
+        enqueued.incrementAndGet();
+        try {
+            queue.put(new Entry(epochSecond, line));
+        } catch (InterruptedException e) {
+            enqueued.decrementAndGet();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits until every line queued so far has been written or given up on.
+     * Returns false if any line since the log was opened could not be written.
+     */
+    public boolean flush() {
+        long target = enqueued.get();
+        while (written.get() + lost.get() < target && writer.isAlive()) {
+            LockSupport.parkNanos(1_000_000);
+        }
+        return lost.get() == 0 && written.get() >= target;
+    }
+
+    public void close() {
+        if (!running) return;
+        flush();
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public File getActiveFile() {
+        return active;
+    }
+
+    // Held while reading the segments so a rotation cannot move lines between them mid-read
+    public Lock readLock() {
+        return segments.readLock();
+    }
+
+    // Closed segments of this log, oldest first
+    public static List<File> closedSegments(File activeFile) {
+        String prefix = baseName(activeFile) + "-";
+        File dir = activeFile.getAbsoluteFile().getParentFile();
+        File[] files = dir == null ? null : dir.listFiles((d, name) -> name.startsWith(prefix) && name.endsWith(".log.gz"));
+        List<File> segments = files == null ? new ArrayList<>() : new ArrayList<>(Arrays.asList(files));
+        segments.sort(Comparator.comparing(File::getName));
+        return segments;
+    }
+
+    public static File indexOf(File segment) {
+        String name = segment.getName();
+        if (name.endsWith(".log.gz")) {
+            return new File(segment.getParentFile(), name.substring(0, name.length() - ".log.gz".length()) + ".idx");
+        }
+        return new File(segment.getPath() + ".idx");
+    }
+
+    // Epoch second of a line's leading [yyyy-MM-dd HH:mm:ss], or -1 if it has none
+    public static long timestampOf(String line) {
+        if (line.length() < 21 || line.charAt(0) != '[' || line.charAt(20) != ']') return -1;
+        try {
+            return LocalDateTime.parse(line.substring(1, 20), TIMESTAMP_FORMAT)
+                    .atZone(ZoneId.systemDefault()).toEpochSecond();
+        } catch (DateTimeException e) {
+            return -1;
+        }
+    }
+
+    private void run() {
+        List<Entry> batch = new ArrayList<>(MAX_BATCH);
+        try {
+            recoverRotation();
+            openActive();
+        } catch (IOException e) {
+            System.err.println("Error opening log " + active + ": " + e.getMessage());
+        }
+        while (running || !queue.isEmpty()) {
+            Entry first;
+            try {
+                first = queue.poll(200, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                running = false;
+                continue;
+            }
+            if (first == null) continue;
+            batch.add(first);
+            queue.drainTo(batch, MAX_BATCH - 1);
+            long writtenBefore = written.get();
+            try {
+                // A failed open or rotation leaves no channel; try again for every batch
+                if (channel == null) openActive();
+                writeBatch(batch);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Error writing log " + active + ": " + e.getMessage());
+                closeChannel();
+            } finally {
+                lost.addAndGet(batch.size() - (written.get() - writtenBefore));
+                batch.clear();
+            }
+        }
+        closeChannel();
+    }
+
+    private void writeBatch(List<Entry> batch) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        List<String> marks = new ArrayList<>();
+        for (Entry entry : batch) {
+            byte[] line = (entry.line + System.lineSeparator()).getBytes(FileHelper.CHARSET);
+            LocalDate day = Instant.ofEpochSecond(entry.epochSecond).atZone(ZoneId.systemDefault()).toLocalDate();
+            boolean full = activeSize + bytes.size() + line.length > maxSegmentBytes;
+            if (activeLines > 0 && (full || day.isAfter(activeDay))) {
+                writeActive(bytes, marks);
+                rotate();
+            }
+            if (activeLines == 0) activeDay = day;
+            if (activeLines % INDEX_INTERVAL == 0) {
+                marks.add("B," + entry.epochSecond + "," + (activeSize + bytes.size()));
+            }
+            bytes.write(line);
+            activeLines++;
+            pendingLines++;
+        }
+        writeActive(bytes, marks);
+    }
+
+    private void writeActive(ByteArrayOutputStream bytes, List<String> marks) throws IOException {
+        if (bytes.size() > 0) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            activeSize += bytes.size();
+            bytes.reset();
+            written.addAndGet(pendingLines);
+            pendingLines = 0;
+        }
+        if (!marks.isEmpty()) {
+            Files.write(activeIndex.toPath(), marks, FileHelper.CHARSET,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            marks.clear();
+        }
+    }
+
+    // Compresses the active segment block by block and starts a new one
+    private void rotate() throws IOException {
+        closeChannel();
+        List<String> lines = Files.readAllLines(active.toPath(), FileHelper.CHARSET);
+        long first = Long.MAX_VALUE;
+        long last = 0;
+        for (String line : lines) {
+            long timestamp = timestampOf(line);
+            if (timestamp < 0) continue;
+            first = Math.min(first, timestamp);
+            last = Math.max(last, timestamp);
+        }
+        if (first > last) first = last;
+        File segment = segmentFile(first);
+        File temp = new File(segment.getPath() + ".tmp");
+
+        List<String> index = new ArrayList<>();
+        index.add("S," + first + "," + last + "," + lines.size());
+        try (FileChannel out = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            OutputStream stream = Channels.newOutputStream(out);
+            for (int start = 0; start < lines.size(); start += INDEX_INTERVAL) {
+                int end = Math.min(start + INDEX_INTERVAL, lines.size());
+                index.add(blockMark(lines.subList(start, end), out.position()));
+                // A fresh gzip member per block; finish() ends the member without closing the file
+                GZIPOutputStream member = new GZIPOutputStream(stream, 8192);
+                for (String line : lines.subList(start, end)) {
+                    member.write((line + System.lineSeparator()).getBytes(FileHelper.CHARSET));
+                }
+                member.finish();
+                member.flush();
+            }
+            out.force(true);
+        }
+        FileHelper.overwriteFile(indexOf(segment).getPath(), index);
+
+        segments.writeLock().lock();
+        try {
+            Files.deleteIfExists(active.toPath());
+            Files.deleteIfExists(activeIndex.toPath());
+            moveIntoPlace(temp, segment);
+        } finally {
+            segments.writeLock().unlock();
+        }
+        openActive();
+    }
+
+    /**
+     * Finishes a rotation interrupted by a crash. While the active segment
+     * still exists its lines have not been handed over, so a leftover .tmp is
+     * dropped; once it is gone the .tmp holds them and is moved into place.
+     */
+    private void recoverRotation() throws IOException {
+        String prefix = baseName(active) + "-";
+        File dir = active.getAbsoluteFile().getParentFile();
+        File[] leftovers = dir == null ? null : dir.listFiles((d, name) -> name.startsWith(prefix) && name.endsWith(".log.gz.tmp"));
+        if (leftovers == null) return;
+        for (File temp : leftovers) {
+            File segment = new File(dir, temp.getName().substring(0, temp.getName().length() - ".tmp".length()));
+            File index = indexOf(segment);
+            if (active.exists() || !index.exists()) {
+                Files.deleteIfExists(temp.toPath());
+                if (!segment.exists()) Files.deleteIfExists(index.toPath());
+            } else {
+                moveIntoPlace(temp, segment);
+            }
+        }
+    }
+
+    private static void moveIntoPlace(File from, File to) throws IOException {
+        try {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private String blockMark(List<String> block, long offset) {
+        long earliest = Long.MAX_VALUE;
+        for (String line : block) {
+            long timestamp = timestampOf(line);
+            if (timestamp >= 0) earliest = Math.min(earliest, timestamp);
+        }
+        StringBuilder mark = new StringBuilder("B,").append(earliest == Long.MAX_VALUE ? 0 : earliest).append(',').append(offset);
+        if (keyOf == null) return mark.toString();
+        Set<String> keys = new TreeSet<>();
+        for (String line : block) {
+            String key = keyOf.apply(line);
+            if (key != null) keys.add(key);
+        }
+        return mark.append(',').append(String.join(";", keys)).toString();
+    }
+
+    private File segmentFile(long firstEpochSecond) {
+        String stamp = LocalDateTime.ofInstant(Instant.ofEpochSecond(firstEpochSecond), ZoneId.systemDefault())
+                .format(SEGMENT_SUFFIX);
+        File dir = active.getAbsoluteFile().getParentFile();
+        File segment = new File(dir, baseName(active) + "-" + stamp + ".log.gz");
+        for (int n = 1; segment.exists(); n++) {
+            segment = new File(dir, baseName(active) + "-" + stamp + "-" + n + ".log.gz");
+        }
+        return segment;
+    }
+
+    // Opens the active segment, rebuilding its index from the file itself
+    private void openActive() throws IOException {
+        File dir = active.getAbsoluteFile().getParentFile();
+        if (dir != null) dir.mkdirs();
+        List<String> marks = new ArrayList<>();
+        pendingLines = 0;
+        activeSize = 0;
+        activeLines = 0;
+        activeDay = null;
+        if (active.exists()) {
+            for (String line : Files.readAllLines(active.toPath(), FileHelper.CHARSET)) {
+                long timestamp = timestampOf(line);
+                if (activeLines == 0 && timestamp >= 0) {
+                    activeDay = Instant.ofEpochSecond(timestamp).atZone(ZoneId.systemDefault()).toLocalDate();
+                }
+                if (activeLines % INDEX_INTERVAL == 0) {
+                    marks.add("B," + Math.max(timestamp, 0) + "," + activeSize);
+                }
+                activeSize += (line + System.lineSeparator()).getBytes(FileHelper.CHARSET).length;
+                activeLines++;
+            }
+        }
+        Files.write(activeIndex.toPath(), marks, FileHelper.CHARSET);
+        channel = FileChannel.open(active.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void closeChannel() {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing log " + active + ": " + e.getMessage());
+        }
+        channel = null;
+    }
+
+    private static String baseName(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+}
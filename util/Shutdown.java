@@ -0,0 +1,49 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One JVM shutdown hook that closes components in a fixed order: the server
+ * stops taking requests, event consumers drain, logs written by those
+ * consumers are closed, and pooled file appenders go last. Separate hooks
+ * would run concurrently in no particular order, so a listener could still be
+ * writing to a log that was already closed.
+ */
+public class Shutdown {
+    // Stages run in declaration order; tasks within a stage run in registration order
+    public enum Stage { SERVER, EVENTS, LOGS, APPENDERS }
+
+    private static final Map<Stage, List<Runnable>> TASKS = new EnumMap<>(Stage.class);
+    private static boolean hooked;
+
+    private Shutdown() {
+    }
+
+    public static synchronized void register(Stage stage, Runnable task) {
+        if (!hooked) {
+            Runtime.getRuntime().addShutdownHook(new Thread(Shutdown::runAll, "shutdown"));
+            hooked = true;
+        }
+        TASKS.computeIfAbsent(stage, k -> new ArrayList<>()).add(task);
+    }
+
+    private static void runAll() {
+        List<Runnable> tasks = new ArrayList<>();
+        synchronized (Shutdown.class) {
+            for (List<Runnable> stage : TASKS.values()) {
+                tasks.addAll(stage);
+            }
+        }
+        // A failing task must not keep later stages from closing
+        for (Runnable task : tasks) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                System.err.println("Error during shutdown: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package util;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed pool of reentrant locks selected by key hash. Work on keys that map to
+ * different stripes runs in parallel; work on the same key is serialized.
+ * Locks are taken with try-with-resources:
+ *
+ *   try (StripedLockManager.Held held = locks.lock(trainId)) { ... }
+ *
+ * The handle is never read inside the block, so callers suppress javac's
+ * "try" lint warning once per class.
+ *
+ * Per-key acquisition counts, contention, wait time and hold time are kept
+ * for the admin report.
+ */
+public class StripedLockManager {
+    private static final int DEFAULT_STRIPES = 64;
+    private static StripedLockManager instance;
+
+    private final ReentrantLock[] stripes;
+    private final Map<String, KeyStats> stats = new ConcurrentHashMap<>();
+
+    public StripedLockManager(int stripeCount) {
+        int size = Integer.highestOneBit(Math.max(stripeCount, 1) * 2 - 1);
+        stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public static synchronized StripedLockManager getInstance() {
+        if (instance == null) {
+            instance = new StripedLockManager(DEFAULT_STRIPES);
+        }
+        return instance;
+    }
+
+    // Held by the calling thread until closed; not to be shared between threads
+    public final class Held implements AutoCloseable {
+        private final ReentrantLock lock;
+        private final KeyStats keyStats;
+        private final long acquiredAt;
+        private boolean released;
+
+        private Held(ReentrantLock lock, KeyStats keyStats, long acquiredAt) {
+            this.lock = lock;
+            this.keyStats = keyStats;
+            this.acquiredAt = acquiredAt;
+        }
+
+        @Override
+        public void close() {
+            if (released) return;
+            released = true;
+            keyStats.recordHold(System.nanoTime() - acquiredAt);
+            lock.unlock();
+        }
+    }
+
+    public Held lock(String key) {
+        String normalized = normalize(key);
+        ReentrantLock lock = stripes[stripeFor(normalized)];
+        KeyStats keyStats = stats.computeIfAbsent(normalized, k -> new KeyStats());
+        if (!lock.tryLock()) {
+            long waitStart = System.nanoTime();
+            lock.lock();
+            keyStats.recordContention(System.nanoTime() - waitStart);
+        }
+        keyStats.acquisitions.increment();
+        return new Held(lock, keyStats, System.nanoTime());
+    }
+
+    public static final class KeyStats {
+        private final LongAdder acquisitions = new LongAdder();
+        private final LongAdder contended = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+        private final LongAdder holdNanos = new LongAdder();
+        private final AtomicLong maxHoldNanos = new AtomicLong();
+
+        private void recordContention(long nanos) {
+            contended.increment();
+            waitNanos.add(nanos);
+        }
+
+        private void recordHold(long nanos) {
+            holdNanos.add(nanos);
+            maxHoldNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        public long getAcquisitions() { return acquisitions.sum(); }
+        public long getContended() { return contended.sum(); }
+        public long getWaitNanos() { return waitNanos.sum(); }
+        public long getHoldNanos() { return holdNanos.sum(); }
+        public long getMaxHoldNanos() { return maxHoldNanos.get(); }
+    }
+
+    // Live per-key statistics, ordered by key
+    public Map<String, KeyStats> getStats() {
+        return new TreeMap<>(stats);
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    private int stripeFor(String key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        return h & (stripes.length - 1);
+    }
+
+    private static String normalize(String key) {
+        return key == null ? "" : key.trim().toUpperCase();
+    }
+}
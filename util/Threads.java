@@ -0,0 +1,83 @@
+package util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Starts background threads and task executors on virtual threads when the
+ * running JVM has them (Java 21+) and on daemon platform threads otherwise.
+ * Virtual threads are looked up reflectively so the code still compiles and
+ * runs on Java 17.
+ */
+public class Threads {
+    private static final Method OF_VIRTUAL = lookup(Thread.class, "ofVirtual");
+    private static final Method BUILDER_NAME = lookup(builderType(), "name", String.class);
+    private static final Method BUILDER_START = lookup(builderType(), "start", Runnable.class);
+    private static final Method VIRTUAL_EXECUTOR = lookup(Executors.class, "newVirtualThreadPerTaskExecutor");
+
+    private Threads() {
+    }
+
+    public static boolean virtualThreadsAvailable() {
+        return OF_VIRTUAL != null && BUILDER_NAME != null && BUILDER_START != null;
+    }
+
+    public static Thread start(String name, Runnable task) {
+        if (virtualThreadsAvailable()) {
+            try {
+                Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), name);
+                return (Thread) BUILDER_START.invoke(builder, task);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                // Fall through to a platform thread
+            }
+        }
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * One virtual thread per task when available. Otherwise a fixed pool of
+     * max(32, 8 * cores) daemon threads: on Java 17 at most that many tasks
+     * run at once and the rest queue, so many concurrent clients need
+     * Java 21. Locks held across file I/O on the booking path are
+     * ReentrantLocks, which a blocked virtual thread does not pin.
+     */
+    public static ExecutorService newTaskExecutor(String name) {
+        if (VIRTUAL_EXECUTOR != null) {
+            try {
+                return (ExecutorService) VIRTUAL_EXECUTOR.invoke(null);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                // Fall through to a platform pool
+            }
+        }
+        AtomicInteger count = new AtomicInteger();
+        int size = Math.max(32, Runtime.getRuntime().availableProcessors() * 8);
+        return Executors.newFixedThreadPool(size, task -> {
+            Thread thread = new Thread(task, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Thread.Builder is the public interface, so its methods stay accessible
+    private static Class<?> builderType() {
+        try {
+            return Class.forName("java.lang.Thread$Builder");
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    private static Method lookup(Class<?> type, String name, Class<?>... parameterTypes) {
+        if (type == null) return null;
+        try {
+            return type.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}